@@ -16,506 +16,1501 @@
 
 package au.edu.unimelb.cis.geo.controller;
 
+import au.edu.unimelb.cis.geo.controller.utils.HilbertCurve;
 import au.edu.unimelb.cis.geo.model.Line;
 import au.edu.unimelb.cis.geo.model.Triangle;
 import org.locationtech.jts.geom.Coordinate;
 
 import java.util.*;
 
-import static au.edu.unimelb.cis.geo.controller.utils.util.isPointClockwiseFromLine;
+import static au.edu.unimelb.cis.geo.controller.utils.RobustPredicates.inCircle;
+import static au.edu.unimelb.cis.geo.controller.utils.RobustPredicates.orient2d;
+import static au.edu.unimelb.cis.geo.controller.utils.util.sort;
 
+/**
+ * Delaunay triangulation kept as flat arrays of half-edges.
+ * Triangle t is made of half-edges 3t, 3t + 1 and 3t + 2 in clockwise order, each half-edge knows its
+ * start vertex and the half-edge of the same edge in the neighbouring triangle.
+ * Line and Triangle objects are only created when the edge and triangle views are requested.
+ */
 public class DelaunayTriangulation {
-    private ArrayList<Coordinate> uniqueCoordinates = new ArrayList<Coordinate>();
-    private HashMap<String, Line> edgeSet = new HashMap<String, Line>();
-    private HashMap<Integer, Triangle> triangleSet = new HashMap<Integer, Triangle>();
+    //position of a coordinate in this list is its vertex ID
+    private ArrayList<Coordinate> uniqueCoordinates;
+    //x and y of each vertex at positions 2 * vertexID and 2 * vertexID + 1
+    private double[] coords;
+    //open addressing table of vertex IDs hashed on their coordinates, -1 marks an empty slot
+    //with a snapping tolerance vertices are hashed on the grid cell of tolerance size they fall in
+    private int[] vertexTable;
+    private double snappingTolerance = 0;
+    //number of input points merged into each vertex, null while every vertex has a single point
+    private int[] multiplicities;
+    //start vertex of each half-edge, -1 for the half-edges of a removed triangle
+    private int[] triangles;
+    //half-edge of the same edge in the neighbouring triangle, -1 for an edge on the convex hull
+    private int[] halfEdges;
+    //triangle indexes are in range [0, numOfTriangleIndexes), including the removed ones
+    private int numOfTriangleIndexes = 0;
+    private int numOfTriangles = 0;
+    //indexes of removed triangles, reused by the triangles added next
+    private int[] freeTriangleIndexes = new int[16];
+    private int numOfFreeTriangleIndexes = 0;
+    //index of the last added triangle, point location starts walking from there
+    private int lastTriangleIndex = -1;
+    //a half-edge leaving each vertex, the hull edge leaving it for a vertex on the convex hull
+    private int[] vertexHalfEdges;
+    //stack of half-edges to be checked for Delaunay condition
+    private int[] halfEdgesToLegalize = new int[16];
+    private int numOfHalfEdgesToLegalize = 0;
+    private long numOfFlips = 0;
+    //convex hull as a doubly linked list of vertex IDs in clockwise order, with an angular hash of its vertices
+    private int[] hullNext, hullPrev, hullHash;
+    private double hullCenterX, hullCenterY;
+
+    //edge and triangle views, rebuilt on request after the triangulation changes
+    private HashMap<String, Line> edgeSet;
+    private HashMap<Integer, Triangle> triangleSet;
     //List data structure to hold the edges of the Delaunay triangulation
-    private ArrayList<Line> DelaunayEdges = new ArrayList<>();
+    private ArrayList<Line> DelaunayEdges;
+    //line of each half-edge, shared by the two half-edges of an edge
+    private Line[] halfEdgeLines;
+    private boolean isViewOutdated = true;
 
     public DelaunayTriangulation(Set<Coordinate> pointSet) {
-//        System.out.println("INFO: pointSet size= " + pointSet.size());
-        //validate the point set
+        this(pointSet, false);
+    }
 
-        //remove overlapping points
-        HashMap locationsMap = new HashMap<Coordinate, Integer>();
+    /**
+     * @param pointSet
+     * @param isSpatiallyOrdered if true vertex IDs are assigned along a Hilbert curve, so that vertices
+     *                           close in space are also close in getUniqueCoordinates and in memory
+     */
+    public DelaunayTriangulation(Set<Coordinate> pointSet, boolean isSpatiallyOrdered) {
+        this(pointSet, 0, isSpatiallyOrdered);
+    }
 
-        for (Coordinate point : pointSet) {
-            if (!locationsMap.containsKey(point)) {
-                locationsMap.put(point, 1);
-            } else {
-                int count = (int) locationsMap.get(point);
-                locationsMap.put(point, count++);
-            }
-        }
+    /**
+     * @param points may contain repeated points, those are counted in the multiplicity of their vertex
+     * @param snappingTolerance points closer than this to an existing vertex are merged into it
+     */
+    public DelaunayTriangulation(Collection<Coordinate> points, double snappingTolerance) {
+        this(points, snappingTolerance, false);
+    }
 
-        uniqueCoordinates.addAll(locationsMap.keySet());
-        ArrayList<Coordinate> processingCoordinates = new ArrayList<Coordinate>();
-        processingCoordinates.addAll(locationsMap.keySet());
-        locationsMap = null; //saving space
+    /**
+     * @param points may contain repeated points, those are counted in the multiplicity of their vertex
+     * @param snappingTolerance points closer than this to an existing vertex are merged into it
+     * @param isSpatiallyOrdered if true vertex IDs are assigned along a Hilbert curve
+     */
+    public DelaunayTriangulation(Collection<Coordinate> points, double snappingTolerance,
+                                 boolean isSpatiallyOrdered) {
+//        System.out.println("INFO: pointSet size= " + pointSet.size());
+        //validate the point set
 
-        //log the number of points to create Delaunay triangulation on
-//        System.out.println("INFO: # of points for Delaunay graph = " + DelaunayPoints.size());
+        setUniqueCoordinates(points, snappingTolerance, isSpatiallyOrdered);
+        triangulate();
+    }
+
+    /**
+     * Triangulates all unique coordinates with S-hull, followed by legalizing every interior edge
+     * Leaves the triangulation empty if there are less than 3 points or all of them are collinear
+     */
+    private void triangulate() {
+        int numOfPoints = uniqueCoordinates.size();
+        //a planar triangulation has at most 2n - 5 triangles
+        clearTriangles(2 * numOfPoints);
+        Arrays.fill(vertexHalfEdges, -1);
 
         //validate number of points
-        if (processingCoordinates.size() < 3) {
+        if (numOfPoints < 3) {
             return; //not enough points
         }
 
-
         //S-hull algorithm [http://www.s-hull.org/paper/s_hull.pdf]
 
-        //1. sort points
-        Collections.sort(processingCoordinates);
-        //2. select a x_o point randomly from x_i
-        Coordinate x_o = processingCoordinates.get(0);
+        //1. x_o is the smallest point on x and then on y
+        int id_o = 0;
+        for (int i = 1; i < numOfPoints; i++) {
+            if (getX(i) < getX(id_o) || (getX(i) == getX(id_o) && getY(i) < getY(id_o))) {
+                id_o = i;
+            }
+        }
         //3. find the point x_j closest to x_0
-        Coordinate x_j = processingCoordinates.get(1);
-
-        //remove x_o and x_j from further processing
-        processingCoordinates.remove(0);
-        processingCoordinates.remove(0);
+        //this makes the circumcircle of the seed triangle empty, which keeps every point s_i outside the hull
+        int id_j = -1;
+        double minDistance = Double.MAX_VALUE;
+        for (int i = 0; i < numOfPoints; i++) {
+            double distance = getDistanceSquared(id_o, getX(i), getY(i));
+            if (i != id_o && distance < minDistance) {
+                minDistance = distance;
+                id_j = i;
+            }
+        }
 
         //4. find the point x_k that creates the smallest circumCircle
         // with x_0 and x_j and record the center of the circum-circle C
-        int i_x_k = 0;
+        int id_k = -1;
         double minCircumRadius = Double.MAX_VALUE;
-        Triangle triangle;
-        Coordinate[] vertices = new Coordinate[3];
-        for (int i = 0; i < processingCoordinates.size(); i++) {
-            vertices[0] = x_o;
-            vertices[1] = x_j;
-            vertices[2] = processingCoordinates.get(i);
-
-            triangle = new Triangle(vertices);
-
-            triangle.SetCircumRadius();
-            double radius = triangle.getCircumRadius();
-//            System.out.println("DEBUG: Point" + i + "^th " + DelaunayPoints.get(i) + " radius = " + radius);
+        for (int i = 0; i < numOfPoints; i++) {
+            if (i == id_o || i == id_j || getOrientation(id_o, id_j, getX(i), getY(i)) == 0) {
+                continue; //collinear points do not have a circumcircle
+            }
+            double radius = getCircumRadiusSquared(id_o, id_j, i);
             if (radius < minCircumRadius) {
-//                System.out.println("DEBUG: MIN found at " + i + "^th radius = " + radius);
                 minCircumRadius = radius;
-                i_x_k = i;
+                id_k = i;
             }
         }
-        Coordinate x_k = processingCoordinates.get(i_x_k);
-
-        //remove x_k from further processing
-        processingCoordinates.remove(i_x_k);
+        if (id_k == -1) {
+            return; //all points are collinear
+        }
 
         //5. order point x_0, x_j, x_k to give a right handed (clockwise) system this is the initial x_o convex hull
-        //create line in the order x_0, x_j and check x_k is clockwise or not relative to line
-        Line line = new Line(x_o, x_j);
-        //if x_k is not clockwise swap the locations of x_o and x_j
-        if (!isPointClockwiseFromLine(x_k, line)) {
-            Coordinate x_temp = x_o;
-            x_o = x_j;
-            x_j = x_temp;
+        if (getOrientation(id_o, id_j, getX(id_k), getY(id_k)) > 0) {
+            int temp = id_o;
+            id_o = id_j;
+            id_j = temp;
         }
         //6. after this x_o, x_j and x_k in that order creates a right handed system
-        ArrayList<Coordinate> convexHull = new ArrayList<Coordinate>();
-
-        convexHull.add(x_o);
-        convexHull.add(x_j);
-        convexHull.add(x_k);
-
-        //7. add initial 3 edges to Delaunay Triangulation;
-        vertices[0] = x_o;
-        vertices[1] = x_j;
-        vertices[2] = x_k;
-        triangle = new Triangle(vertices);
-        //Add the first triangle
-        Line edge1 = getFromLineSet(x_o, x_j);
-        Line edge2 = getFromLineSet(x_j, x_k);
-        Line edge3 = getFromLineSet(x_k, x_o);
-
-        triangle.setIndex(triangleSet.size());
-        edge1.addNeighbour(triangle.getIndex());
-        edge2.addNeighbour(triangle.getIndex());
-        edge3.addNeighbour(triangle.getIndex());
-
-        triangle.setEdges(new Line[]{edge1, edge2, edge3});
-        triangleSet.put(triangleSet.size(), triangle);
-        //First triangle addition finished
+        //this is the initial convex hull, kept as a doubly linked list of vertex IDs in clockwise order
+        hullNext = new int[numOfPoints];
+        hullPrev = new int[numOfPoints];
+        //vertices not on the hull point to themselves
+        for (int i = 0; i < numOfPoints; i++) {
+            hullNext[i] = i;
+        }
+        hullNext[id_o] = id_j;
+        hullNext[id_j] = id_k;
+        hullNext[id_k] = id_o;
+        hullPrev[id_j] = id_o;
+        hullPrev[id_k] = id_j;
+        hullPrev[id_o] = id_k;
+
+        //7. add the first triangle, all of its half-edges are on the hull
+        setVertexHalfEdges(addTriangle(id_o, id_j, id_k));
 
         //8. re-sort the remaining points with respect to the circumcenter of the first triangle,
         // to give points s_i
-        triangle.SetCircumRadius();
-        Coordinate c = triangle.getCircumcenter();
-        Collections.sort(processingCoordinates, (Comparator.<Coordinate>
-                comparingDouble(point1 -> point1.distance(c))
-                .thenComparingDouble(point2 -> point2.distance(c))));
+        setHullCenterToCircumcenter(id_o, id_j, id_k);
+        int[] sweepVertexIDs = new int[numOfPoints - 3];
+        double[] distances = new double[numOfPoints - 3];
+        for (int i = 0, j = 0; i < numOfPoints; i++) {
+            if (i != id_o && i != id_j && i != id_k) {
+                sweepVertexIDs[j] = i;
+                distances[j++] = getDistanceSquared(i, hullCenterX, hullCenterY);
+            }
+        }
+        sort(sweepVertexIDs, distances, 0, sweepVertexIDs.length - 1);
+        distances = null; //saving space
+
+        //hull vertices are hashed on their angle around C, so that a hull vertex
+        //close to the visible part of the hull can be found without scanning the hull
+        hullHash = new int[(int) Math.ceil(Math.sqrt(numOfPoints))];
+        Arrays.fill(hullHash, -1);
+        hullHash[getHullHashKey(id_o)] = id_o;
+        hullHash[getHullHashKey(id_j)] = id_j;
+        hullHash[getHullHashKey(id_k)] = id_k;
 
         //9. sequentially add the points s_i to the propagating 2D convex hull
         // that is seeded with the triangle formed from x_0, x_j, x_k
         // as a new point is added the facets of the 2D-hull that are visible to it form new triangles
-        int resetID = 0; // To store the convex hull position to be replaced
-        for (Coordinate point : processingCoordinates) {
-            ArrayList<Integer> postProcessIds = new ArrayList<Integer>();
-            for (int i = 0; i < convexHull.size(); i++) {
-                int h = (i - 1 < 0) ? convexHull.size() - 1 : i - 1;
-                int j = (i + 1 == convexHull.size()) ? 0 : i + 1;
+        //visible hull edges become interior edges, addPointOutsideHull adds those to be legalized
+        int numOfSkippedVertices = 0;
+        for (int vertexID : sweepVertexIDs) {
+            if (!addPointOutsideHull(vertexID)) {
+                sweepVertexIDs[numOfSkippedVertices++] = vertexID;
+            }
+        }
+        //INFO: By this point a non-overlapping(planar) triangulation of the set of points is created
+
+        //adjacent pairs of triangles of this triangulation must be 'flipped'
+        // in order to create a Delaunay triangulation from the initial non-overlapping triangulation
+        //every interior edge is checked once, after that only the edges around a flipped quad are checked again
+        legalize();
 
-                Coordinate h_point = convexHull.get(h);
-                Coordinate i_point = convexHull.get(i);
-                Coordinate j_point = convexHull.get(j);
+        //a point that did not see the hull is already inside it, so it is inserted into the Delaunay triangulation
+        for (int i = 0; i < numOfSkippedVertices; i++) {
+            addPointToTriangulation(sweepVertexIDs[i]);
+        }
+//        System.out.println("DEBUG: # of flips = " + numOfFlips);
 
-                Line BeforeConvexHullEdge = new Line(h_point, i_point);
-                Line afterConvexHullEdge = new Line(i_point, j_point);
+        //INFO: Delaunay triangulation is created by this point.
+    }
 
-                boolean isRotationClockwiseWRTBefore = isPointClockwiseFromLine(point, BeforeConvexHullEdge);
-                boolean isRotationClockwiseWRTAfter = isPointClockwiseFromLine(point, afterConvexHullEdge);
+    /**
+     * Creates a triangulation without any vertices
+     * Used by triangulation engines that compute the triangles themselves, those should call
+     * setUniqueCoordinates and then add each triangle through addTriangle and link them through linkHalfEdges
+     */
+    protected DelaunayTriangulation() {
+        setUniqueCoordinates(Collections.<Coordinate>emptySet());
+    }
 
-                if (!isRotationClockwiseWRTBefore && !isRotationClockwiseWRTAfter) {
-                    triangle = new Triangle(new Coordinate[]{point, j_point, i_point});
-                    addTriangle(triangle);
+    /**
+     * Removes overlapping points and assigns vertex IDs to the remaining ones
+     * @param pointSet
+     */
+    protected void setUniqueCoordinates(Collection<Coordinate> pointSet) {
+        setUniqueCoordinates(pointSet, false);
+    }
 
-                    postProcessIds.add(i);
-                } else if (isRotationClockwiseWRTBefore && !isRotationClockwiseWRTAfter) {
-                    triangle = new Triangle(new Coordinate[]{point, j_point, i_point});
-                    addTriangle(triangle);
+    /**
+     * Removes overlapping points and assigns vertex IDs to the remaining ones
+     * @param pointSet
+     * @param isSpatiallyOrdered if true vertex IDs follow the order of points along a Hilbert curve
+     */
+    protected void setUniqueCoordinates(Collection<Coordinate> pointSet, boolean isSpatiallyOrdered) {
+        setUniqueCoordinates(pointSet, 0, isSpatiallyOrdered);
+    }
 
-                    resetID = j;
-                }
+    /**
+     * Merges overlapping points into vertices and assigns vertex IDs to them
+     * The first point of a group of close points is kept as the vertex, a point is merged into the closest vertex
+     * within the snapping tolerance, so a chain of points each close to the next can end up in several vertices.
+     * @param pointSet
+     * @param snappingTolerance points closer than this to a vertex are merged into it, 0 merges equal points only
+     * @param isSpatiallyOrdered if true vertex IDs follow the order of points along a Hilbert curve
+     */
+    protected void setUniqueCoordinates(Collection<Coordinate> pointSet, double snappingTolerance,
+                                        boolean isSpatiallyOrdered) {
+        if (!(snappingTolerance >= 0) || Double.isInfinite(snappingTolerance)) {
+            throw new IllegalArgumentException("Snapping tolerance should be a finite non negative value");
+        }
+        this.snappingTolerance = snappingTolerance;
+        uniqueCoordinates = new ArrayList<Coordinate>(pointSet.size());
+        coords = new double[2 * pointSet.size()];
+        vertexHalfEdges = new int[pointSet.size()];
+        multiplicities = null;
+        vertexTable = new int[getVertexTableCapacity(pointSet.size())];
+        Arrays.fill(vertexTable, -1);
+
+        Collection<Coordinate> points = pointSet;
+        if (isSpatiallyOrdered) {
+            //vertices are created in the order of their first point along the curve
+            ArrayList<Coordinate> sortedPoints = new ArrayList<Coordinate>(pointSet);
+            HilbertCurve.sort(sortedPoints);
+            points = sortedPoints;
+        }
+        for (Coordinate point : points) {
+            addVertex(point);
+        }
+
+        clearTriangles(2 * uniqueCoordinates.size());
+        Arrays.fill(vertexHalfEdges, -1);
+    }
+
+    /**
+     * Removes all triangles, keeping arrays large enough for the expected number of triangles
+     * @param expectedNumOfTriangles
+     */
+    private void clearTriangles(int expectedNumOfTriangles) {
+        if (triangles == null || triangles.length < 3 * expectedNumOfTriangles) {
+            triangles = new int[3 * Math.max(expectedNumOfTriangles, 1)];
+            halfEdges = new int[triangles.length];
+        }
+        numOfTriangleIndexes = 0;
+        numOfTriangles = 0;
+        numOfFreeTriangleIndexes = 0;
+        lastTriangleIndex = -1;
+        hullNext = null;
+        hullPrev = null;
+        hullHash = null;
+        isViewOutdated = true;
+    }
+
+    /**
+     * Adds a point to this Delaunay triangulation
+     * Only the triangles around the new vertex are changed
+     * @param point
+     * @return false if the point is already a vertex of this triangulation, or within snapping tolerance of one,
+     * its multiplicity is increased instead
+     */
+    public boolean insert(Coordinate point) {
+        int vertexID = addVertex(point);
+        if (vertexID == -1) {
+            return false;
+        }
+        isViewOutdated = true;
+
+        if (numOfTriangles == 0) {
+            //less than 3 points or all of them collinear so far, there is no triangle to insert into
+            triangulate();
+            return true;
+        }
+
+        if (hullNext == null) {
+            setHullFromEdges();
+        } else if (hullNext.length <= vertexID) {
+            hullNext = Arrays.copyOf(hullNext, uniqueCoordinates.size() * 2);
+            hullPrev = Arrays.copyOf(hullPrev, uniqueCoordinates.size() * 2);
+        }
+        //vertices not on the hull point to themselves
+        hullNext[vertexID] = vertexID;
+        addPointToTriangulation(vertexID);
+        return true;
+    }
+
+    /**
+     * Adds each point of the collection to this Delaunay triangulation
+     * @param points
+     * @return true if at least one point is added
+     */
+    public boolean insertAll(Collection<Coordinate> points) {
+        //consecutive points being close to each other keeps the point location walks short
+        ArrayList<Coordinate> sortedPoints = new ArrayList<Coordinate>(points);
+        HilbertCurve.sort(sortedPoints);
+
+        boolean isChanged = false;
+        for (Coordinate point : sortedPoints) {
+            isChanged |= insert(point);
+        }
+        return isChanged;
+    }
+
+    /**
+     * Removes a point from this Delaunay triangulation
+     * Triangles around the vertex are replaced by a Delaunay triangulation of the hole they leave,
+     * so the cost depends on the degree of the vertex rather than on the size of the triangulation.
+     * The vertex with the largest ID takes over the ID of the removed vertex, keeping vertex IDs contiguous.
+     * A vertex with a multiplicity above one only has its multiplicity decreased.
+     * @param point
+     * @return false if the point is not a vertex of this triangulation
+     */
+    public boolean remove(Coordinate point) {
+        int vertexID = findVertex(point.getX(), point.getY());
+        if (vertexID == -1) {
+            return false;
+        }
+        if (getMultiplicity(vertexID) > 1) {
+            --multiplicities[vertexID];
+            return true;
+        }
+        removeVertexSlot(getVertexSlot(vertexID));
+        isViewOutdated = true;
+
+        if (numOfTriangles > 0) {
+            if (hullNext == null) {
+                setHullFromEdges();
             }
+            removeFromTriangulation(vertexID);
+        }
 
-            //processing convex hull changes
-            //Add new point at the location identified by resetID
-            convexHull.add(resetID, point);
+        //move the last vertex to the ID of the removed vertex
+        int lastVertexID = uniqueCoordinates.size() - 1;
+        if (vertexID != lastVertexID) {
+            changeVertexID(lastVertexID, vertexID);
+        }
+        uniqueCoordinates.remove(lastVertexID);
+        return true;
+    }
 
-            //if there are points to be removed from convex hull
-            if (!postProcessIds.isEmpty()) {
-                Collections.sort(postProcessIds);
-                int key = -1;
-                for (int i = postProcessIds.size() -1; i >= 0; i--) {
-                    if (postProcessIds.get(i) >= resetID) {
-                        convexHull.remove(postProcessIds.get(i) + 1);
-                    }
-                    else {
-                        //Could not use key extracted from postProcessIds as is
-                        //had to assign it to new variable before using
-                        //otherwise convex hull point was not removed
-                        key = postProcessIds.get(i);
-                        convexHull.remove(key);
-                    }
+    /**
+     * Removes the triangles around the vertex and fills the hole with ears whose circumcircle
+     * does not contain any other vertex of the hole, those are Delaunay triangles of the remaining points.
+     * For a vertex on the convex hull the hole is an open chain, the part of it that is not covered by ears
+     * becomes the new convex hull.
+     * @param vertexID
+     */
+    private void removeFromTriangulation(int vertexID) {
+        int[] star = getStar(vertexID);
+        boolean isHullVertex = halfEdges[star[0]] == -1;
+
+        //vertices around the removed vertex in clockwise order,
+        //along with the half-edge on the other side of the edge from each vertex to the next one
+        int size = isHullVertex ? star.length + 1 : star.length;
+        int[] polygon = new int[size], outerHalfEdges = new int[size];
+        for (int i = 0; i < star.length; i++) {
+            int linkHalfEdge = nextHalfEdge(star[i]);
+            polygon[i] = triangles[linkHalfEdge];
+            outerHalfEdges[i] = halfEdges[linkHalfEdge];
+        }
+        if (isHullVertex) {
+            polygon[star.length] = triangles[previousHalfEdge(star[star.length - 1])];
+            outerHalfEdges[star.length] = -1;
+        }
+        for (int halfEdge : star) {
+            removeTriangle(halfEdge / 3);
+        }
+
+        //clip ears until the hole is filled
+        int[] ears = new int[size];
+        int numOfEars = 0;
+        boolean isEarFound = true;
+        while (isEarFound && size > 2) {
+            isEarFound = false;
+            for (int i = isHullVertex ? 1 : 0; i < (isHullVertex ? size - 1 : size); i++) {
+                int previous = (i == 0) ? size - 1 : i - 1;
+                int a = polygon[previous],
+                        b = polygon[i],
+                        c = polygon[(i == size - 1) ? 0 : i + 1];
+                if (isDelaunayEar(a, b, c, polygon, size)) {
+                    int ear = addTriangle(a, b, c);
+                    linkHalfEdges(ear, outerHalfEdges[previous]);
+                    linkHalfEdges(ear + 1, outerHalfEdges[i]);
+                    //edge from a to c takes the place of b in the hole, the ear is on its other side
+                    outerHalfEdges[previous] = ear + 2;
+                    System.arraycopy(polygon, i + 1, polygon, i, size - i - 1);
+                    System.arraycopy(outerHalfEdges, i + 1, outerHalfEdges, i, size - i - 1);
+                    --size;
+                    ears[numOfEars++] = ear;
+                    isEarFound = true;
+                    break;
                 }
             }
         }
-        //INFO: By this point a non-overlapping(planar) triangulation of the set of points is created
-//        System.out.println("INFO: # of triangles = " + triangleSet.size());
 
-        if (triangleSet.size() == 1) { //If there is only one triangle
-            DelaunayEdges.addAll(edgeSet.values());
-            return;
+        if (!isHullVertex) {
+            //last two edges of the hole are the two sides of the same edge
+            if (size == 2) {
+                linkHalfEdges(outerHalfEdges[0], outerHalfEdges[1]);
+            }
+        } else {
+            //edges of the remaining chain are on the hull now
+            for (int i = 0; i + 1 < size; i++) {
+                if (outerHalfEdges[i] != -1) {
+                    halfEdges[outerHalfEdges[i]] = -1;
+                }
+            }
+        }
+        for (int i = 0; i < numOfEars; i++) {
+            setVertexHalfEdges(ears[i]);
         }
 
-        //adjacent pairs of triangles of this triangulation must be 'flipped'
-        // in order to create a Delaunay triangulation from the initial non-overlapping triangulation
-        boolean inner_flipped = false, outer_flipped = true;
-        int iteration = 0;
-        while (outer_flipped) {
-            outer_flipped = false;
-            for (int i = 0; i < triangleSet.size(); i++) {
-                triangle = triangleSet.get(i);
-                for (int j = 0; j < 3; j++) {
-                    int k = (j == 2) ? 0 : j + 1;
-                    line = getFromLineSet(triangle.getVertices()[j], triangle.getVertices()[k]);
-                    if (line.getNumOfNeighbours() > 1) {
-                        int otherNeighbor = getOtherNeighbour(line.getAdjacentNeighbours(), i);
-                        if (otherNeighbor != -1) {
-                            inner_flipped = checkAndFlip(i, otherNeighbor);
-                        }
-                    }
-
-                    if (inner_flipped) {
-                        outer_flipped = true;
-                        inner_flipped = false;
-                        --i;
-                        break;
-                    }
+        if (isHullVertex) {
+            //hull went through the removed vertex from the last to the first vertex of the chain,
+            //now it goes through the remaining chain in reverse order
+            for (int i = size - 1; i > 0; i--) {
+                hullNext[polygon[i]] = polygon[i - 1];
+                hullPrev[polygon[i - 1]] = polygon[i];
+                hullHash[getHullHashKey(polygon[i])] = polygon[i];
+                if (outerHalfEdges[i - 1] != -1) {
+                    vertexHalfEdges[polygon[i]] = outerHalfEdges[i - 1];
                 }
             }
-            ++iteration;
-//            System.out.println("DEBUG: check and flip iteration no = " + iteration);
+            hullNext[vertexID] = vertexID;
         }
 
-        //INFO: Delaunay triangulation is created by this point.
-//        System.out.println("INFO: # of edges for Delaunay triangulation = " + edgeSet.size());
+        int key = getHullHashKey(vertexID);
+        if (hullHash[key] == vertexID) {
+            hullHash[key] = -1;
+        }
+    }
 
-        DelaunayEdges.addAll(edgeSet.values());
+    /**
+     * @return true if a, b, c turn clockwise and no other vertex of the polygon is inside their circumcircle
+     */
+    private boolean isDelaunayEar(int a, int b, int c, int[] polygon, int size) {
+        if (getOrientation(a, b, getX(c), getY(c)) >= 0) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            int vertexID = polygon[i];
+            if (vertexID != a && vertexID != b && vertexID != c && isInCircumcircle(a, b, c, vertexID)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * Select a line from lineSet to represent a line between given to points
-     * Creates a new line between provided points if that line does not exist
-     * @param point1
-     * @param point2
+     * Half-edges leaving the vertex in clockwise order
+     * For a vertex on the convex hull, the first one is the hull edge leaving the vertex
+     * and the triangle of the last one has the hull edge entering it
+     * @param vertexID
      * @return
      */
-    public Line getFromLineSet(Coordinate point1, Coordinate point2) {
+    private int[] getStar(int vertexID) {
+        //rotate counter clockwise to the first half-edge
+        int start = getIncidentHalfEdge(vertexID), first = start;
+        while (halfEdges[first] != -1) {
+            int previous = nextHalfEdge(halfEdges[first]);
+            if (previous == start) {
+                break;
+            }
+            first = previous;
+        }
+
+        //rotate clockwise, crossing the edge entering the vertex
+        int[] star = new int[8];
+        int size = 0, halfEdge = first;
+        do {
+            if (size == star.length) {
+                star = Arrays.copyOf(star, size * 2);
+            }
+            star[size++] = halfEdge;
+            halfEdge = halfEdges[previousHalfEdge(halfEdge)];
+        } while (halfEdge != -1 && halfEdge != first);
+        return Arrays.copyOf(star, size);
+    }
 
-        /* Each line's ID is a combination of tweet ids from points
-         * as the combination can depend on ordering of 2 ids this method checks both combinations */
-        if (edgeSet.containsKey(point1.toString() + "," + point2.toString())) {
-            return edgeSet.get(point1.toString() + "," + point2.toString());
-        } else if (edgeSet.containsKey(point2.toString() + "," + point1.toString())) {
-            return edgeSet.get(point2.toString() + "," + point1.toString());
-        } else { //if line does not exist for both ID combinations
-            //creates a new line and return
-            Line line = new Line(point1, point2);
-            edgeSet.put(point1.toString() + "," + point2.toString(), line);
-            return edgeSet.get(point1.toString() + "," + point2.toString());
+    /**
+     * @return a half-edge leaving given vertex
+     */
+    private int getIncidentHalfEdge(int vertexID) {
+        int halfEdge = vertexHalfEdges[vertexID];
+        if (halfEdge == -1 || triangles[halfEdge] != vertexID) {
+            //point location ends at a triangle having the point as a vertex
+            int triangleIndex = locate(getX(vertexID), getY(vertexID));
+            halfEdge = 3 * triangleIndex;
+            while (triangles[halfEdge] != vertexID) {
+                ++halfEdge;
+            }
+            vertexHalfEdges[vertexID] = halfEdge;
         }
+        return halfEdge;
     }
 
     /**
-     * Removes the line between given points
-     *
-     * @param point1
-     * @param point2
-     * @return true if line exist and removed, false if line does not exist
+     * Gives a vertex a new ID, updating its half-edges and hull links
+     * @param oldVertexID
+     * @param newVertexID unused ID
      */
-    private boolean removeFromLineSet(Coordinate point1, Coordinate point2) {
-        if (edgeSet.containsKey(point1.toString() + "," + point2.toString())) {
-            Line line = edgeSet.get(point1.toString() + "," + point2.toString());
-            edgeSet.remove(point1.toString() + "," + point2.toString());
-            return true;
-        } else if (edgeSet.containsKey(point2.toString() + "," + point1.toString())) {
-            Line line = edgeSet.get(point2.toString() + "," + point1.toString());
-            edgeSet.remove(point2.toString() + "," + point1.toString());
-            return true;
+    private void changeVertexID(int oldVertexID, int newVertexID) {
+        Coordinate point = uniqueCoordinates.get(oldVertexID);
+        uniqueCoordinates.set(newVertexID, point);
+        coords[2 * newVertexID] = coords[2 * oldVertexID];
+        coords[2 * newVertexID + 1] = coords[2 * oldVertexID + 1];
+        vertexTable[getVertexSlot(oldVertexID)] = newVertexID;
+        if (multiplicities != null) {
+            multiplicities[newVertexID] = multiplicities[oldVertexID];
+        }
+        if (numOfTriangles == 0) {
+            return;
+        }
+
+        int[] star = getStar(oldVertexID);
+        for (int halfEdge : star) {
+            triangles[halfEdge] = newVertexID;
+        }
+        vertexHalfEdges[newVertexID] = star[0];
+
+        if (halfEdges[star[0]] == -1) {
+            hullNext[newVertexID] = hullNext[oldVertexID];
+            hullPrev[newVertexID] = hullPrev[oldVertexID];
+            hullPrev[hullNext[oldVertexID]] = newVertexID;
+            hullNext[hullPrev[oldVertexID]] = newVertexID;
         } else {
-            return false;
+            hullNext[newVertexID] = newVertexID;
+        }
+        int key = getHullHashKey(newVertexID);
+        if (hullHash[key] == oldVertexID) {
+            hullHash[key] = newVertexID;
+        }
+    }
+
+    /**
+     * Locates the triangle containing the vertex by walking towards it from the last added triangle,
+     * splits that triangle, or the two triangles of the edge the vertex lies on, and legalizes their outer edges
+     * A vertex outside the triangulation is connected to the visible part of the convex hull instead
+     * @param vertexID
+     */
+    private void addPointToTriangulation(int vertexID) {
+        double x = getX(vertexID), y = getY(vertexID);
+        int triangleIndex = locate(x, y);
+        if (triangleIndex == -1) { //point is outside the triangulation
+            addPointOutsideHull(vertexID);
+            legalize();
+            return;
+        }
+
+        //locate leaves the point inside the triangle or on one of its edges
+        int e0 = 3 * triangleIndex;
+        int onEdge = -1;
+        for (int j = 0; j < 3; j++) {
+            if (getOrientation(triangles[e0 + j], triangles[nextHalfEdge(e0 + j)], x, y) == 0) {
+                onEdge = e0 + j;
+            }
+        }
+
+        if (onEdge == -1) {
+            //split the triangle a, b, c into a, b, p and two new triangles b, c, p and c, a, p
+            int a = triangles[e0], b = triangles[e0 + 1], c = triangles[e0 + 2];
+            int outerBC = halfEdges[e0 + 1], outerCA = halfEdges[e0 + 2];
+            triangles[e0 + 2] = vertexID;
+            int t1 = addTriangle(b, c, vertexID), t2 = addTriangle(c, a, vertexID);
+            linkHalfEdges(t1, outerBC);
+            linkHalfEdges(t2, outerCA);
+            linkHalfEdges(e0 + 1, t1 + 2);
+            linkHalfEdges(t1 + 1, t2 + 2);
+            linkHalfEdges(t2 + 1, e0 + 2);
+            setVertexHalfEdges(e0);
+            setVertexHalfEdges(t1);
+            setVertexHalfEdges(t2);
+            addHalfEdgeToLegalize(e0);
+            addHalfEdgeToLegalize(t1);
+            addHalfEdgeToLegalize(t2);
+        } else {
+            splitEdge(onEdge, vertexID);
         }
+        legalize();
     }
 
     /**
-     * Processes a triangle
-     * 1. Create lines to make the triangle
-     * 1.1 add neighbouring triangles to those lines
-     * 2. Add provided triangle to triangle set
-     * @param triangle
+     * Splits the half-edge from a to b, and its twin if there is one, at the vertex.
+     * Each triangle on the edge is split into two, keeping the clockwise order of its vertices.
+     * @param halfEdge
+     * @param vertexID
      */
-    private void addTriangle(Triangle triangle) {
-        triangle.setIndex(triangleSet.size());
-        Line[] edges = new Line[3];
-        for (int i = 0; i < 3; i++) {
-            int j = (i == 2) ? 0 : i + 1;
-            Line line = getFromLineSet(triangle.getVertices()[i], triangle.getVertices()[j]);
-            line.addNeighbour(triangle.getIndex());
-            edges[i] = line;
-            if (line.getNumOfNeighbours() == 1) {
-                triangle.addNeighbour(line.getAdjacentNeighbours()[0]);
-            } else {
+    private void splitEdge(int halfEdge, int vertexID) {
+        int twin = halfEdges[halfEdge];
+        int a = triangles[halfEdge], b = triangles[nextHalfEdge(halfEdge)];
+
+        //triangle a, b, c becomes p, b, c and the new triangle is a, p, c
+        int previous = previousHalfEdge(halfEdge);
+        int c = triangles[previous], outerCA = halfEdges[previous];
+        triangles[halfEdge] = vertexID;
+        int t1 = addTriangle(a, vertexID, c);
+        linkHalfEdges(t1 + 2, outerCA);
+        linkHalfEdges(t1 + 1, previous);
+        addHalfEdgeToLegalize(nextHalfEdge(halfEdge));
+        addHalfEdgeToLegalize(t1 + 2);
+
+        if (twin != -1) {
+            //triangle b, a, d becomes p, a, d and the new triangle is b, p, d
+            int twinPrevious = previousHalfEdge(twin);
+            int d = triangles[twinPrevious], outerDB = halfEdges[twinPrevious];
+            triangles[twin] = vertexID;
+            int t2 = addTriangle(b, vertexID, d);
+            linkHalfEdges(t2 + 2, outerDB);
+            linkHalfEdges(t2 + 1, twinPrevious);
+            linkHalfEdges(t2, halfEdge);
+            linkHalfEdges(t1, twin);
+            addHalfEdgeToLegalize(nextHalfEdge(twin));
+            addHalfEdgeToLegalize(t2 + 2);
+            setVertexHalfEdges(twin - twin % 3);
+            setVertexHalfEdges(t2);
+        } else {
+            //hull edges have the direction of their triangle
+            hullNext[a] = vertexID;
+            hullPrev[vertexID] = a;
+            hullNext[vertexID] = b;
+            hullPrev[b] = vertexID;
+            hullHash[getHullHashKey(vertexID)] = vertexID;
+        }
+        setVertexHalfEdges(halfEdge - halfEdge % 3);
+        setVertexHalfEdges(t1);
+    }
+
+    /**
+     * Finds the triangle containing the point by walking towards it
+     * Visibility walk, moving across an edge that has the point on its outer side,
+     * always reaches the containing triangle of a Delaunay triangulation
+     * @param x
+     * @param y
+     * @return index of the triangle containing the point inside or on its boundary,
+     * -1 if the point is outside the triangulation
+     */
+    private int locate(double x, double y) {
+        int triangleIndex = getWalkStart(x, y);
+        while (true) {
+            int e0 = 3 * triangleIndex, crossingHalfEdge = -1;
+            for (int j = 0; j < 3 && crossingHalfEdge == -1; j++) {
+                //triangle is clockwise, so a point outside of an edge is counter clockwise from it
+                if (getOrientation(triangles[e0 + j], triangles[nextHalfEdge(e0 + j)], x, y) > 0) {
+                    crossingHalfEdge = e0 + j;
+                }
+            }
+            if (crossingHalfEdge == -1) {
+                return triangleIndex;
+            }
+
+            int twin = halfEdges[crossingHalfEdge];
+            if (twin == -1) { //a hull edge is visible from the point
+                return -1;
+            }
+            triangleIndex = twin / 3;
+        }
+    }
+
+    /**
+     * @return positive if the point is counter clockwise from the edge between given vertices,
+     * negative if clockwise and zero if collinear
+     */
+    private double getOrientation(int vertexID1, int vertexID2, double x, double y) {
+        return orient2d(getX(vertexID1), getY(vertexID1), getX(vertexID2), getY(vertexID2), x, y);
+    }
+
+    private double getDistanceSquared(int vertexID, double x, double y) {
+        double dx = getX(vertexID) - x, dy = getY(vertexID) - y;
+        return dx * dx + dy * dy;
+    }
+
+    private double getCircumRadiusSquared(int vertexID1, int vertexID2, int vertexID3) {
+        double bx = getX(vertexID2) - getX(vertexID1), by = getY(vertexID2) - getY(vertexID1),
+                cx = getX(vertexID3) - getX(vertexID1), cy = getY(vertexID3) - getY(vertexID1);
+        double b = bx * bx + by * by, c = cx * cx + cy * cy;
+        double d = 0.5 / (bx * cy - by * cx);
+        double x = (cy * b - by * c) * d, y = (bx * c - cx * b) * d;
+        return x * x + y * y;
+    }
+
+    private void setHullCenterToCircumcenter(int vertexID1, int vertexID2, int vertexID3) {
+        double bx = getX(vertexID2) - getX(vertexID1), by = getY(vertexID2) - getY(vertexID1),
+                cx = getX(vertexID3) - getX(vertexID1), cy = getY(vertexID3) - getY(vertexID1);
+        double b = bx * bx + by * by, c = cx * cx + cy * cy;
+        double d = 0.5 / (bx * cy - by * cx);
+        hullCenterX = getX(vertexID1) + (cy * b - by * c) * d;
+        hullCenterY = getY(vertexID1) + (bx * c - cx * b) * d;
+    }
+
+    /**
+     * Jump and walk, the closest to the point among the last added triangle and a sample of
+     * about cube root of n triangles is used as the start of the walk, which keeps the expected walk short
+     * @param x
+     * @param y
+     * @return index of a triangle
+     */
+    private int getWalkStart(double x, double y) {
+        int start = -1;
+        double minDistance = Double.MAX_VALUE;
+        if (lastTriangleIndex != -1 && triangles[3 * lastTriangleIndex] != -1) {
+            start = lastTriangleIndex;
+            minDistance = getDistanceSquared(triangles[3 * start], x, y);
+        }
+
+        int numOfSamples = (int) Math.cbrt(numOfTriangleIndexes);
+        for (int i = 0; i < numOfSamples; i++) {
+            int triangleIndex = (int) ((long) i * numOfTriangleIndexes / numOfSamples);
+            if (triangles[3 * triangleIndex] == -1) {
                 continue;
             }
+            double distance = getDistanceSquared(triangles[3 * triangleIndex], x, y);
+            if (distance < minDistance) {
+                minDistance = distance;
+                start = triangleIndex;
+            }
         }
-        triangle.setEdges(edges);
-        triangleSet.put(triangleSet.size(), triangle);
+        while (start == -1 || triangles[3 * start] == -1) {
+            start = (start + 1) % numOfTriangleIndexes;
+        }
+        return start;
     }
 
     /**
-     * From the array adjacentNeighbours select the neighbour other than the one provided at pos
-     *
-     * @param adjacentNeighbours
-     * @param pos
-     * @return
+     * Builds the convex hull and its angular hash from the half-edges without a twin,
+     * for triangulations created without the S-hull sweep
+     */
+    private void setHullFromEdges() {
+        hullNext = new int[uniqueCoordinates.size() * 2];
+        hullPrev = new int[uniqueCoordinates.size() * 2];
+        //vertices not on the hull point to themselves
+        for (int i = 0; i < hullNext.length; i++) {
+            hullNext[i] = i;
+        }
+        double sumX = 0, sumY = 0;
+        int numOfHullVertices = 0;
+        for (int halfEdge = 0; halfEdge < 3 * numOfTriangleIndexes; halfEdge++) {
+            if (triangles[halfEdge] == -1) {
+                continue;
+            }
+            int from = triangles[halfEdge];
+            if (halfEdges[halfEdge] == -1) {
+                //triangles and hull are both clockwise, so a hull edge has the direction of its triangle
+                int to = triangles[nextHalfEdge(halfEdge)];
+                hullNext[from] = to;
+                hullPrev[to] = from;
+                vertexHalfEdges[from] = halfEdge;
+                sumX += getX(from);
+                sumY += getY(from);
+                ++numOfHullVertices;
+            } else if (hullNext[from] == from) {
+                int current = vertexHalfEdges[from];
+                if (current == -1 || triangles[current] != from) {
+                    vertexHalfEdges[from] = halfEdge;
+                }
+            }
+        }
+
+        //mean of hull vertices is inside the hull
+        hullCenterX = sumX / numOfHullVertices;
+        hullCenterY = sumY / numOfHullVertices;
+        hullHash = new int[(int) Math.ceil(Math.sqrt(uniqueCoordinates.size()))];
+        Arrays.fill(hullHash, -1);
+        for (int vertexID = 0; vertexID < uniqueCoordinates.size(); vertexID++) {
+            if (hullNext[vertexID] != vertexID) {
+                hullHash[getHullHashKey(vertexID)] = vertexID;
+            }
+        }
+    }
+
+    /**
+     * Connects a vertex lying outside the current convex hull to the hull edges visible from it
+     * and replaces the visible part of the hull with the new vertex
+     * @param vertexID
+     * @return false if no hull edge is visible from the vertex, i.e. it is not outside the hull
      */
-    private int getOtherNeighbour(int[] adjacentNeighbours, int pos) {
-        if (adjacentNeighbours[0] == pos) {
-            return adjacentNeighbours[1];
+    private boolean addPointOutsideHull(int vertexID) {
+        //find a hull vertex with a close angle around hull center, vertices removed from hull point to themselves
+        int start = -1;
+        int key = getHullHashKey(vertexID);
+        for (int i = 0; i < hullHash.length; i++) {
+            start = hullHash[(key + i) % hullHash.length];
+            if (start != -1 && start != hullNext[start]) {
+                break;
+            }
+        }
+
+        //walk the hull from there until a visible edge is found
+        start = hullPrev[start];
+        int e = start, q;
+        while (!isHullEdgeVisible(vertexID, e, q = hullNext[e])) {
+            e = q;
+            if (e == start) {
+                return false;
+            }
+        }
+
+        //new triangle on the hull edge e -> n, the hull edge leaving a hull vertex is kept in vertexHalfEdges
+        int n = hullNext[e];
+        int triangle = addTriangle(vertexID, n, e);
+        linkHalfEdges(triangle + 1, vertexHalfEdges[e]);
+        addHalfEdgeToLegalize(triangle + 1);
+        setVertexHalfEdges(triangle);
+        //half-edges from the new vertex to n and from e to the new vertex are on the hull
+        int outgoing = triangle, incoming = triangle + 2;
+
+        //add triangles on the visible edges following e and remove the vertices between them from hull
+        while (isHullEdgeVisible(vertexID, n, q = hullNext[n])) {
+            triangle = addTriangle(vertexID, q, n);
+            linkHalfEdges(triangle + 1, vertexHalfEdges[n]);
+            linkHalfEdges(triangle + 2, outgoing);
+            addHalfEdgeToLegalize(triangle + 1);
+            setVertexHalfEdges(triangle);
+            outgoing = triangle;
+            hullNext[n] = n;
+            n = q;
+        }
+
+        //if the walk started at a visible edge, visible edges can be there before e as well
+        if (e == start) {
+            while (isHullEdgeVisible(vertexID, q = hullPrev[e], e)) {
+                triangle = addTriangle(vertexID, e, q);
+                linkHalfEdges(triangle + 1, vertexHalfEdges[q]);
+                linkHalfEdges(triangle, incoming);
+                addHalfEdgeToLegalize(triangle + 1);
+                setVertexHalfEdges(triangle);
+                incoming = triangle + 2;
+                hullNext[e] = e;
+                e = q;
+            }
         }
-        return adjacentNeighbours[0];
+
+        hullPrev[vertexID] = e;
+        hullNext[e] = vertexID;
+        hullPrev[n] = vertexID;
+        hullNext[vertexID] = n;
+
+        hullHash[getHullHashKey(vertexID)] = vertexID;
+        hullHash[getHullHashKey(e)] = e;
+        return true;
+    }
+
+    /**
+     * @return true if the vertex is strictly on the outer side of the hull edge from hullVertexID1 to hullVertexID2
+     */
+    private boolean isHullEdgeVisible(int vertexID, int hullVertexID1, int hullVertexID2) {
+        //hull is clockwise, so a point seeing the edge is counter clockwise from it
+        return getOrientation(hullVertexID1, hullVertexID2, getX(vertexID), getY(vertexID)) > 0;
     }
 
     /**
-     * Checks and flips given two triangles A and B if they violate Delaunay condition
-     *
-     a ------- b,2
-     |  A   /  |
-     |    /    |
-     |  /   B  |
-     c,3------ d,1
-     * @param triangleAIndex
-     * @param triangleBIndex
+     * Monotonic pseudo angle of the vertex around hull center, scaled to the size of hull hash
+     * @param vertexID
      * @return
      */
-    private boolean checkAndFlip(int triangleAIndex, int triangleBIndex) {
-        if (triangleAIndex == triangleBIndex) { //same triangle cannot be compared
-            return false;
+    private int getHullHashKey(int vertexID) {
+        double dx = getX(vertexID) - hullCenterX,
+                dy = getY(vertexID) - hullCenterY;
+        double p = dx / (Math.abs(dx) + Math.abs(dy));
+        double angle = (dy > 0 ? 3 - p : 1 + p) / 4; //in range [0, 1]
+        return (int) Math.floor(angle * hullHash.length) % hullHash.length;
+    }
+
+    /**
+     * Smallest power of two table keeping the load of the vertex table at most 3/4
+     * @param numOfVertices
+     * @return
+     */
+    private static int getVertexTableCapacity(int numOfVertices) {
+        return Integer.highestOneBit(Math.max(4, numOfVertices * 4 / 3 + 1) - 1) << 1;
+    }
+
+    private long getCell(double coordinate) {
+        return (long) Math.floor(coordinate / snappingTolerance);
+    }
+
+    //fibonacci hashing of the grid cell
+    private int getCellSlot(long cellX, long cellY) {
+        return (int) (((cellX * 31 + cellY) * 0x9E3779B97F4A7C15L) >>> 32) & (vertexTable.length - 1);
+    }
+
+    /**
+     * @return first slot of the vertex table to probe for the point
+     */
+    private int getHomeSlot(double x, double y) {
+        if (snappingTolerance > 0) {
+            return getCellSlot(getCell(x), getCell(y));
         }
+        //adding zero turns -0.0 into 0.0 as they are equal points
+        return getCellSlot(Double.doubleToLongBits(x + 0.0), Double.doubleToLongBits(y + 0.0));
+    }
 
-        Triangle triangleA = triangleSet.get(triangleAIndex);
-        Triangle triangleB = triangleSet.get(triangleBIndex);
-        Coordinate[] triangle1 = triangleA.getVertices();
-        Coordinate[] triangle2 = triangleB.getVertices();
-
-//        System.out.println("Beginning = " +triangleAIndex + "," + triangleBIndex);
-//        System.out.println("triangleA = " + triangleA);
-//        System.out.println("triangleB = " + triangleB);
-
-        int D_index = -1,
-            A_index = -1,
-            B_index = -1,
-            C_index = -1;
-        //Following loop locates point D and sets up points for A,B,C from given triangles
-        for (int i = 0; i < 3; i++) { //this traverses triangleA clockwise
-            int j = (i == 2) ? 0 : i + 1;
-            Coordinate endpointB = triangle1[i];
-            Coordinate endpointC = triangle1[j];
-
-            for (int k = 2; k >= 0; k--) { //this traverses triangleB counter clockwise
-                int l = (k == 0) ? 2 : k - 1;
-                Coordinate endpoint1 = triangle2[k];
-                Coordinate endpoint2 = triangle2[l];
-
-                if (endpointB.equals(endpoint1) &&
-                        endpointC.equals(endpoint2)) {
-                    D_index = (l == 0) ? 2 : l - 1;
-                    A_index = (j == 2) ? 0 : j + 1;
-                    B_index = k;
-                    C_index = j;
-                    break;
+    /**
+     * @return ID of the vertex at the point, or of the closest vertex within snapping tolerance of it,
+     * -1 if there is no such vertex
+     */
+    private int findVertex(double x, double y) {
+        int mask = vertexTable.length - 1;
+        if (snappingTolerance == 0) {
+            for (int slot = getHomeSlot(x, y); vertexTable[slot] != -1; slot = (slot + 1) & mask) {
+                int vertexID = vertexTable[slot];
+                if (getX(vertexID) == x && getY(vertexID) == y) {
+                    return vertexID;
                 }
             }
+            return -1;
+        }
 
-            if (D_index > -1) {
+        //a point within tolerance is in the same or in one of the eight neighbouring cells
+        int closestVertexID = -1;
+        double minDistance = snappingTolerance * snappingTolerance;
+        long cellX = getCell(x), cellY = getCell(y);
+        for (long i = cellX - 1; i <= cellX + 1; i++) {
+            for (long j = cellY - 1; j <= cellY + 1; j++) {
+                for (int slot = getCellSlot(i, j); vertexTable[slot] != -1; slot = (slot + 1) & mask) {
+                    double distance = getDistanceSquared(vertexTable[slot], x, y);
+                    if (distance <= minDistance) {
+                        minDistance = distance;
+                        closestVertexID = vertexTable[slot];
+                    }
+                }
+            }
+        }
+        return closestVertexID;
+    }
+
+    /**
+     * @return slot of the vertex table holding the vertex
+     */
+    private int getVertexSlot(int vertexID) {
+        int mask = vertexTable.length - 1;
+        int slot = getHomeSlot(getX(vertexID), getY(vertexID));
+        while (vertexTable[slot] != vertexID) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    //puts the vertex into the first empty slot from its home slot
+    private void addVertexSlot(int vertexID) {
+        int mask = vertexTable.length - 1;
+        int slot = getHomeSlot(getX(vertexID), getY(vertexID));
+        while (vertexTable[slot] != -1) {
+            slot = (slot + 1) & mask;
+        }
+        vertexTable[slot] = vertexID;
+    }
+
+    /**
+     * Adds the point as the vertex with the next unused ID
+     * @param point
+     * @return ID of the vertex, -1 if the point is merged into an existing vertex
+     */
+    private int addVertex(Coordinate point) {
+        int existingVertexID = findVertex(point.getX(), point.getY());
+        if (existingVertexID != -1) {
+            if (multiplicities == null) {
+                multiplicities = new int[vertexHalfEdges.length];
+                Arrays.fill(multiplicities, 1);
+            }
+            ++multiplicities[existingVertexID];
+            return -1;
+        }
+        int vertexID = uniqueCoordinates.size();
+        if (vertexHalfEdges.length <= vertexID) {
+            vertexHalfEdges = Arrays.copyOf(vertexHalfEdges, Math.max(16, vertexID * 2));
+            coords = Arrays.copyOf(coords, vertexHalfEdges.length * 2);
+            if (multiplicities != null) {
+                multiplicities = Arrays.copyOf(multiplicities, vertexHalfEdges.length);
+            }
+        }
+        coords[2 * vertexID] = point.getX();
+        coords[2 * vertexID + 1] = point.getY();
+        vertexHalfEdges[vertexID] = -1;
+        if (multiplicities != null) {
+            multiplicities[vertexID] = 1;
+        }
+        uniqueCoordinates.add(point);
+
+        if (vertexTable.length < getVertexTableCapacity(uniqueCoordinates.size())) {
+            vertexTable = new int[vertexTable.length * 2];
+            Arrays.fill(vertexTable, -1);
+            for (int i = 0; i < vertexID; i++) {
+                addVertexSlot(i);
+            }
+        }
+        addVertexSlot(vertexID);
+        return vertexID;
+    }
+
+    /**
+     * Empties the slot of the vertex table, moving back entries that probed past it,
+     * so that there are no tombstones
+     * @param slot
+     */
+    private void removeVertexSlot(int slot) {
+        int mask = vertexTable.length - 1;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & mask;
+            int vertexID = vertexTable[i];
+            if (vertexID == -1) {
                 break;
             }
+            int home = getHomeSlot(getX(vertexID), getY(vertexID));
+            //move entry i to slot only if its home slot is not within (slot, i]
+            if (((i - home) & mask) >= ((i - slot) & mask)) {
+                vertexTable[slot] = vertexID;
+                slot = i;
+            }
         }
+        vertexTable[slot] = -1;
+    }
 
-        if (D_index == -1) {
-            System.out.println(triangleAIndex + "," + triangleBIndex + " SKIPPING FLIP!!!! " +
-                    "Cannot locate D");
-            return false;
+    /**
+     * Select a line from lineSet to represent a line between given to points
+     * Creates a new line between provided points if that line is not an edge of the triangulation,
+     * such a line is not added to the triangulation
+     * @param point1
+     * @param point2
+     * @return
+     */
+    public Line getFromLineSet(Coordinate point1, Coordinate point2) {
+        int halfEdge = getHalfEdge(getVertexID(point1), getVertexID(point2));
+        if (halfEdge == -1) {
+            return new Line(point1, point2);
         }
+        return getLine(halfEdge);
+    }
 
-        Line BC = getFromLineSet(triangle2[B_index], triangle1[C_index]);
-        //Check if BC is previously flipped
-        if (BC.getFlipCount() >= 16) {
-            System.out.println(triangleAIndex + "," + triangleBIndex + " SKIPPING FLIP!!!! " +
-                    "As these triangles are already flipped before");
-            return false;
+    /**
+     * @return a half-edge between given vertices in either direction, -1 if they are not connected
+     */
+    private int getHalfEdge(int vertexID1, int vertexID2) {
+        if (vertexID1 == -1 || vertexID2 == -1 || numOfTriangles == 0) {
+            return -1;
+        }
+        for (int halfEdge : getStar(vertexID1)) {
+            if (triangles[nextHalfEdge(halfEdge)] == vertexID2) {
+                return halfEdge;
+            }
+            //the vertex before a hull vertex is only reached by the half-edge entering it
+            if (triangles[previousHalfEdge(halfEdge)] == vertexID2) {
+                return previousHalfEdge(halfEdge);
+            }
         }
+        return -1;
+    }
 
-        //If there is a line connecting points A and D there is no point performing determinant test
-        //as those D is not gonna be inside circum circle of ABC
-        if (edgeSet.containsKey(triangle2[D_index].toString() + "," + triangle1[A_index].toString()) ||
-                edgeSet.containsKey(triangle1[A_index].toString()+ "," + triangle2[D_index].toString())) {
-//            System.out.println(triangleA.getPos() + "," + triangleB.getPos() + "SKIPPING FLIP!!!! before determinant test");
-            return false;
+    private static String getEdgeSetKey(Line line) {
+        return line.getEndPoints()[0].toString() + "," + line.getEndPoints()[1].toString();
+    }
+
+    /**
+     * Adds the triangle between given vertices, its half-edges are not linked to any other half-edge
+     * @param vertexID1
+     * @param vertexID2
+     * @param vertexID3
+     * vertices should be in clockwise order
+     * @return first half-edge of the triangle, which goes from vertexID1 to vertexID2
+     */
+    protected int addTriangle(int vertexID1, int vertexID2, int vertexID3) {
+        int triangleIndex;
+        if (numOfFreeTriangleIndexes > 0) {
+            triangleIndex = freeTriangleIndexes[--numOfFreeTriangleIndexes];
+        } else {
+            triangleIndex = numOfTriangleIndexes++;
+            if (triangles.length < 3 * numOfTriangleIndexes) {
+                triangles = Arrays.copyOf(triangles, triangles.length * 2);
+                halfEdges = Arrays.copyOf(halfEdges, triangles.length);
+            }
         }
+        int halfEdge = 3 * triangleIndex;
+        triangles[halfEdge] = vertexID1;
+        triangles[halfEdge + 1] = vertexID2;
+        triangles[halfEdge + 2] = vertexID3;
+        halfEdges[halfEdge] = -1;
+        halfEdges[halfEdge + 1] = -1;
+        halfEdges[halfEdge + 2] = -1;
+        ++numOfTriangles;
+        lastTriangleIndex = triangleIndex;
+        isViewOutdated = true;
+        return halfEdge;
+    }
 
-        //if the given triangles fail determinant test
-        if (isDInsideABC(new Triangle(triangle1), triangle2[D_index])) {
-//            System.out.println("INFO: point D(" + triangle2[D_index] + ") is inside the circumcircle of triangle 1.");
-            //flip given two triangles
-            //ABC and BDC -> ABD and ADC
-            //edge changes
-            //AB ^ BC ^ CA and BD ^ DC ^ CB -> AB ^ BD ^ DA and AD ^ DC ^ CA
-            //note that from triangle A and B, edges AB and DC respectively does not change
-            //we use this as reference point to decide which edges to replace
-            //edge CA from triangle A moves to triangle B after edge DC and
-            //edge BD from triangle B moves to triangle A after edge AB
-            //positions held by edges CA and BD in triangles A and B respectively are replaced by new edge AD
-            /*
-            a ------- b,2
-            |  \      |
-            | A  \  B |
-            |      \  |
-            c,3------ d,1
-             */
-            //adding new line
-            Line newLine = getFromLineSet(triangle2[D_index], triangle1[A_index]);
-
-            if (newLine.getNumOfNeighbours() > 0) { //if new flipping edge has at least one neighbour
-                System.out.println(triangleAIndex + "," + triangleBIndex + "SKIPPING FLIP!!!!");
-                return false; // These 2 triangles should not be flipped
-            }
-
-            Line[] Triangle1Edges = triangleA.getEdges(),
-                    Triangle2Edges = triangleB.getEdges();
-
-//            System.out.println("removing BC line = " + triangle1[C_index].getTweetID() +
-//                    "," + triangle2[B_index].getTweetID());
-//            System.out.println("Adding AD line = " + triangle2[D_index].getTweetID() +
-//                    "," + triangle1[A_index].getTweetID());
-
-            //remove BC line as it is going to be replaced by AD line
-            removeFromLineSet(triangle1[C_index], triangle2[B_index]);
-
-            //Add neighbours to new AD line
-            newLine.addNeighbour(triangleAIndex);
-            newLine.addNeighbour(triangleBIndex);
-            //setting AD is a flipped line so that next time it won't be flipped again
-            newLine.setFlipCount(BC);
-            int flipCount = newLine.getFlipCount();
-
-            Line tempLine;
-            //updating existing BD and AC lines as their neighbours are changing
-            tempLine = getFromLineSet(triangle2[B_index], triangle2[D_index]);
-            tempLine.replaceAdjacentNeighbour(triangleBIndex, triangleAIndex);
-
-            tempLine = getFromLineSet(triangle1[A_index], triangle1[C_index]);
-            tempLine.replaceAdjacentNeighbour(triangleAIndex, triangleBIndex);
-
-            //set C <- D and B <- A
-            triangle1[C_index] = triangle2[D_index];
-            Triangle1Edges[(A_index == 2) ? 0 : A_index + 1] = Triangle2Edges[B_index];
-            triangle2[B_index] = triangle1[A_index];
-            Triangle2Edges[(D_index == 2) ? 0 : D_index + 1] = Triangle1Edges[C_index];
-
-            Triangle2Edges[B_index] = newLine;
-            Triangle1Edges[C_index] = newLine;
-
-            triangleA.SetCircumRadius();
-            triangleB.SetCircumRadius();
-
-//            System.out.println(triangleA.getPos() + "," + triangleB.getPos() + " FLIPPING count = " + flipCount);
-//            System.out.println("triangleA = " + triangleA);
-//            System.out.println("triangleB = " + triangleB);
-            return true;
+    /**
+     * Makes given half-edges the two sides of the same edge
+     * @param halfEdge1
+     * @param halfEdge2 -1 if the first half-edge is on the convex hull
+     */
+    protected void linkHalfEdges(int halfEdge1, int halfEdge2) {
+        if (halfEdge1 != -1) {
+            halfEdges[halfEdge1] = halfEdge2;
+        }
+        if (halfEdge2 != -1) {
+            halfEdges[halfEdge2] = halfEdge1;
+        }
+    }
+
+    /**
+     * Points the vertices of a changed triangle to its half-edges where needed,
+     * a hull edge always replaces the half-edge of its start vertex, so that hull vertices keep their hull edge
+     * @param firstHalfEdge
+     */
+    private void setVertexHalfEdges(int firstHalfEdge) {
+        for (int halfEdge = firstHalfEdge; halfEdge < firstHalfEdge + 3; halfEdge++) {
+            int vertexID = triangles[halfEdge], current = vertexHalfEdges[vertexID];
+            if (halfEdges[halfEdge] == -1 || current == -1 || triangles[current] != vertexID) {
+                vertexHalfEdges[vertexID] = halfEdge;
+            }
+        }
+    }
+
+    /**
+     * Removes the triangle and marks its index as free
+     * @param triangleIndex
+     */
+    private void removeTriangle(int triangleIndex) {
+        for (int halfEdge = 3 * triangleIndex; halfEdge < 3 * triangleIndex + 3; halfEdge++) {
+            if (halfEdges[halfEdge] != -1 && halfEdges[halfEdges[halfEdge]] == halfEdge) {
+                halfEdges[halfEdges[halfEdge]] = -1;
+            }
+            triangles[halfEdge] = -1;
+            halfEdges[halfEdge] = -1;
+        }
+        if (numOfFreeTriangleIndexes == freeTriangleIndexes.length) {
+            freeTriangleIndexes = Arrays.copyOf(freeTriangleIndexes, numOfFreeTriangleIndexes * 2);
+        }
+        freeTriangleIndexes[numOfFreeTriangleIndexes++] = triangleIndex;
+        --numOfTriangles;
+        isViewOutdated = true;
+    }
+
+    /**
+     * Adds the edge of given half-edge to the stack of edges to be checked by legalize
+     * @param halfEdge
+     */
+    private void addHalfEdgeToLegalize(int halfEdge) {
+        if (numOfHalfEdgesToLegalize == halfEdgesToLegalize.length) {
+            halfEdgesToLegalize = Arrays.copyOf(halfEdgesToLegalize, numOfHalfEdgesToLegalize * 2);
+        }
+        halfEdgesToLegalize[numOfHalfEdgesToLegalize++] = halfEdge;
+    }
+
+    /**
+     * Lawson flip of edges in the stack until the stack is empty
+     * When two triangles are flipped, the four outer edges of the quad they form are pushed back to the stack
+     * as only those edges can become illegal due to the flip
+     */
+    private void legalize() {
+        while (numOfHalfEdgesToLegalize > 0) {
+            int halfEdge = halfEdgesToLegalize[--numOfHalfEdgesToLegalize];
+            //a flip moves half-edges around, but every edge it changes is pushed again
+            if (triangles[halfEdge] != -1 && halfEdges[halfEdge] != -1 && checkAndFlip(halfEdge)) {
+                ++numOfFlips;
+            }
         }
+    }
+
+    /**
+     * Checks and flips the two triangles on the edge of given half-edge if they violate Delaunay condition
+     * Triangles a, b, c and b, a, d become d, b, c and c, a, d, every half-edge keeps its position
+     * except the ones of the edge a, b which become the new edge c, d
+     * @param halfEdge half-edge from a to b
+     * @return true if the triangles are flipped
+     */
+    private boolean checkAndFlip(int halfEdge) {
+        int twin = halfEdges[halfEdge];
+        int next = nextHalfEdge(halfEdge), previous = previousHalfEdge(halfEdge),
+                twinNext = nextHalfEdge(twin), twinPrevious = previousHalfEdge(twin);
+        int a = triangles[halfEdge], b = triangles[next], c = triangles[previous], d = triangles[twinPrevious];
 
-        return false;
+        //if the given triangles fail determinant test
+        if (!isInCircumcircle(a, b, c, d)) {
+            return false;
+        }
+        int outerDB = halfEdges[twinPrevious], outerCA = halfEdges[previous];
+        triangles[halfEdge] = d;
+        triangles[twin] = c;
+        linkHalfEdges(halfEdge, outerDB);
+        linkHalfEdges(twin, outerCA);
+        linkHalfEdges(previous, twinPrevious);
+        setVertexHalfEdges(halfEdge - halfEdge % 3);
+        setVertexHalfEdges(twin - twin % 3);
+
+        //edges of the two triangles other than the new diagonal are the outer edges of the quad
+        addHalfEdgeToLegalize(halfEdge);
+        addHalfEdgeToLegalize(next);
+        addHalfEdgeToLegalize(twin);
+        addHalfEdgeToLegalize(twinNext);
+        return true;
     }
 
     /**
-     * Checks if point D is residing inside circum circle of the triangle ABC
-     * Note this ABC are traversed counter clockwise direction
+     * Checks if vertex D is residing inside circum circle of the triangle ABC
      * More info - https://en.wikipedia.org/wiki/Delaunay_triangulation#Algorithms
-     A ------- C
-     |      /  |
-     |    /    |
-     |  /      |
-     B ------- D
-     * @param abc
+     * @param a
+     * @param b
+     * @param c vertices in clockwise order
      * @param d
-     * @return True if and only if D lies inside the circumCircle ABC
+     * @return True if and only if D lies strictly inside the circumCircle ABC
      */
-    private boolean isDInsideABC(Triangle abc, Coordinate d) {
-        abc.SetCircumRadius();
+    private boolean isInCircumcircle(int a, int b, int c, int d) {
+        //sign of in-circle determinant is reversed for clockwise triangles
+        return inCircle(getX(a), getY(a), getX(b), getY(b), getX(c), getY(c), getX(d), getY(d)) < 0;
+    }
 
-        double D_length = d.distance(abc.getCircumcenter());
+    /**
+     * Rebuilds the edge and triangle views in place if the triangulation has changed since they were built
+     */
+    private void updateViews() {
+        if (!isViewOutdated && triangleSet != null) {
+            return;
+        }
+        if (triangleSet == null) {
+            triangleSet = new HashMap<Integer, Triangle>();
+            edgeSet = new HashMap<String, Line>();
+        } else {
+            triangleSet.clear();
+            edgeSet.clear();
+        }
 
-        if (D_length < abc.getCircumRadius()) {
-            return true;
+        halfEdgeLines = new Line[3 * numOfTriangleIndexes];
+        for (int halfEdge = 0; halfEdge < 3 * numOfTriangleIndexes; halfEdge++) {
+            int twin = halfEdges[halfEdge];
+            if (triangles[halfEdge] == -1 || (twin != -1 && twin < halfEdge)) {
+                continue; //removed triangle or the line is created for the twin
+            }
+            Line line = new Line(uniqueCoordinates.get(triangles[halfEdge]),
+                    uniqueCoordinates.get(triangles[nextHalfEdge(halfEdge)]));
+            line.addNeighbour(halfEdge / 3);
+            line.setEdgeID(halfEdge);
+            halfEdgeLines[halfEdge] = line;
+            if (twin != -1) {
+                line.addNeighbour(twin / 3);
+                halfEdgeLines[twin] = line;
+            }
+            edgeSet.put(getEdgeSetKey(line), line);
         }
 
-        return false;
+        for (int triangleIndex = 0; triangleIndex < numOfTriangleIndexes; triangleIndex++) {
+            int e0 = 3 * triangleIndex;
+            if (triangles[e0] == -1) {
+                continue;
+            }
+            Triangle triangle = new Triangle(new Coordinate[]{uniqueCoordinates.get(triangles[e0]),
+                    uniqueCoordinates.get(triangles[e0 + 1]), uniqueCoordinates.get(triangles[e0 + 2])},
+                    new int[]{triangles[e0], triangles[e0 + 1], triangles[e0 + 2]});
+            triangle.setIndex(triangleIndex);
+            triangle.setEdges(new Line[]{halfEdgeLines[e0], halfEdgeLines[e0 + 1], halfEdgeLines[e0 + 2]});
+            triangleSet.put(triangleIndex, triangle);
+        }
+        DelaunayEdges = new ArrayList<>(edgeSet.values());
+        isViewOutdated = false;
     }
 
     public ArrayList<Coordinate> getUniqueCoordinates() {
         return uniqueCoordinates;
     }
 
+    /**
+     * @param point
+     * @return ID of the vertex at given point, or the closest one within snapping tolerance of it,
+     * -1 if the point is not a vertex of this triangulation
+     */
+    public int getVertexID(Coordinate point) {
+        return findVertex(point.getX(), point.getY());
+    }
+
+    /**
+     * @param vertexID
+     * @return number of points merged into the vertex
+     */
+    public int getMultiplicity(int vertexID) {
+        return multiplicities == null ? 1 : multiplicities[vertexID];
+    }
+
+    public double getSnappingTolerance() {
+        return snappingTolerance;
+    }
+
+    public int getNumOfVertices() {
+        return uniqueCoordinates.size();
+    }
+
+    public double getX(int vertexID) {
+        return coords[2 * vertexID];
+    }
+
+    public double getY(int vertexID) {
+        return coords[2 * vertexID + 1];
+    }
+
+    public int getNumOfTriangles() {
+        return numOfTriangles;
+    }
+
+    /**
+     * Half-edges are numbered in range [0, getNumOfHalfEdgeIndexes()),
+     * half-edges of removed triangles in that range have -1 as their origin
+     * @return
+     */
+    public int getNumOfHalfEdgeIndexes() {
+        return 3 * numOfTriangleIndexes;
+    }
+
+    /**
+     * @param halfEdge
+     * @return ID of the vertex the half-edge starts from
+     */
+    public int getOrigin(int halfEdge) {
+        return triangles[halfEdge];
+    }
+
+    /**
+     * @param halfEdge
+     * @return ID of the vertex the half-edge ends at
+     */
+    public int getDestination(int halfEdge) {
+        return triangles[nextHalfEdge(halfEdge)];
+    }
+
+    /**
+     * Length of the edge without creating its Line
+     * @param halfEdge
+     * @return
+     */
+    public double getLength(int halfEdge) {
+        int origin = triangles[halfEdge], destination = triangles[nextHalfEdge(halfEdge)];
+        return Math.sqrt(getDistanceSquared(origin, getX(destination), getY(destination)));
+    }
+
+    /**
+     * @param halfEdge
+     * @return the other half-edge of the same edge, -1 if the edge is on the convex hull
+     */
+    public int getTwin(int halfEdge) {
+        return halfEdges[halfEdge];
+    }
+
+    /**
+     * @param halfEdge
+     * @return next half-edge of the same triangle in clockwise order
+     */
+    public static int nextHalfEdge(int halfEdge) {
+        return (halfEdge % 3 == 2) ? halfEdge - 2 : halfEdge + 1;
+    }
+
+    /**
+     * @param halfEdge
+     * @return previous half-edge of the same triangle in clockwise order
+     */
+    public static int previousHalfEdge(int halfEdge) {
+        return (halfEdge % 3 == 0) ? halfEdge + 2 : halfEdge - 1;
+    }
+
+    /**
+     * Iterates over one half-edge of each edge, without creating any Line
+     * The iterator is not valid after the triangulation changes
+     * @return
+     */
+    public PrimitiveIterator.OfInt getEdgeIterator() {
+        return new IndexIterator(true);
+    }
+
+    /**
+     * Iterates over the indexes of triangles, triangle t is made of half-edges 3t, 3t + 1 and 3t + 2
+     * The iterator is not valid after the triangulation changes
+     * @return
+     */
+    public PrimitiveIterator.OfInt getTriangleIterator() {
+        return new IndexIterator(false);
+    }
+
+    /**
+     * @param halfEdge
+     * @return line of the edge in the edge views, shared by both half-edges of the edge
+     */
+    public Line getLine(int halfEdge) {
+        updateViews();
+        return halfEdgeLines[halfEdge];
+    }
+
+    /**
+     * Edges of the triangulation keyed by "endpoint0,endpoint1" string of each edge.
+     * The map is built on first request and updated in place on later requests after the triangulation changes.
+     * @return
+     */
     public HashMap<String, Line> getEdgeSet() {
+        updateViews();
         return edgeSet;
     }
 
     public HashMap<Integer, Triangle> getTriangleSet() {
+        updateViews();
         return triangleSet;
     }
 
+    /**
+     * @return number of edge flips performed while legalizing this triangulation
+     */
+    public long getNumOfFlips() {
+        return numOfFlips;
+    }
+
     public ArrayList<Line> getDelaunayEdges() {
+        updateViews();
         return DelaunayEdges;
     }
+
+    //iterates over triangle indexes in use, or over one half-edge of each edge
+    private class IndexIterator implements PrimitiveIterator.OfInt {
+        private final boolean isEdgeIterator;
+        private final int end;
+        private int next = -1;
+
+        IndexIterator(boolean isEdgeIterator) {
+            this.isEdgeIterator = isEdgeIterator;
+            end = isEdgeIterator ? 3 * numOfTriangleIndexes : numOfTriangleIndexes;
+            advance();
+        }
+
+        private void advance() {
+            do {
+                ++next;
+            } while (next < end && !isInUse(next));
+        }
+
+        private boolean isInUse(int index) {
+            if (!isEdgeIterator) {
+                return triangles[3 * index] != -1;
+            }
+            //an edge is visited through the smaller of its half-edges
+            return triangles[index] != -1 && (halfEdges[index] == -1 || index < halfEdges[index]);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int current = next;
+            advance();
+            return current;
+        }
+    }
 }
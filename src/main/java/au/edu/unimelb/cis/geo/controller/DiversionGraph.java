@@ -17,66 +17,202 @@
 package au.edu.unimelb.cis.geo.controller;
 
 import au.edu.unimelb.cis.geo.model.Line;
+import au.edu.unimelb.cis.geo.model.Triangle;
 import org.locationtech.jts.geom.Coordinate;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 
 import static au.edu.unimelb.cis.geo.controller.utils.util.getPointNotOnEdge;
+import static au.edu.unimelb.cis.geo.controller.utils.util.isInsideDiversionNeighbourhood;
+import static au.edu.unimelb.cis.geo.controller.utils.util.solveForD;
+import static au.edu.unimelb.cis.geo.controller.utils.util.sort;
 
 public class DiversionGraph {
+    //d values closer than this, relative to d, to the critical d of an edge are checked on the triangles again
+    private static final double CRITICAL_D_TOLERANCE = 1e-9;
     private DelaunayTriangulation delaunayTriangulation;
+    //Delaunay edges sorted on their critical d, the smallest d at which they are skipped from the graph.
+    //Edges that are never skipped have NaN and are at the end
+    private Line[] DTEdges;
+    private double[] sortedCriticalDs;
+    private int[] sortedEdgeIDs;
+    private int numOfSkippableEdges;
+    //smallest d the edges are valid for, edges skipped below it are not among the candidates
+    private double minD = Double.NEGATIVE_INFINITY;
 
     public DiversionGraph(DelaunayTriangulation delaunayTriangulation) {
         this.delaunayTriangulation = delaunayTriangulation;
+        setCriticalDs(delaunayTriangulation.getDelaunayEdges().toArray(new Line[0]));
+    }
+
+    /**
+     * Diversion graph on the edges of a graph that contains it for the d values queried,
+     * such as GG for d >= 2, which is the diversion graph at d = 2
+     * Critical d values are computed for the candidates only, other edges are not in any result,
+     * so queries for d below minD throw an IllegalArgumentException.
+     * @param delaunayTriangulation
+     * @param candidates result of a graph on the same triangulation
+     * @param minD smallest d for which the candidates contain the diversion graph, 2 for GG
+     */
+    public DiversionGraph(DelaunayTriangulation delaunayTriangulation, ProximityGraphResult candidates, double minD) {
+        if (candidates.getDelaunayTriangulation() != delaunayTriangulation) {
+            throw new IllegalArgumentException("candidates are on a different triangulation");
+        }
+        if (Double.isNaN(minD)) {
+            throw new IllegalArgumentException("minimum d of the candidates should be a number");
+        }
+        this.delaunayTriangulation = delaunayTriangulation;
+        this.minD = minD;
+        setCriticalDs(candidates.getEdgeList().toArray(new Line[0]));
+    }
+
+    private void setCriticalDs(Line[] DTEdges) {
+        this.DTEdges = DTEdges;
+        sortedCriticalDs = new double[DTEdges.length];
+        sortedEdgeIDs = new int[DTEdges.length];
+
+        int numOfNeverSkippedEdges = 0;
+        numOfSkippableEdges = 0;
+        for (int i = 0; i < DTEdges.length; i++) {
+            double criticalD = getCriticalD(DTEdges[i]);
+            if (Double.isNaN(criticalD)) {
+                ++numOfNeverSkippedEdges;
+                sortedCriticalDs[DTEdges.length - numOfNeverSkippedEdges] = criticalD;
+                sortedEdgeIDs[DTEdges.length - numOfNeverSkippedEdges] = i;
+            } else {
+                sortedCriticalDs[numOfSkippableEdges] = criticalD;
+                sortedEdgeIDs[numOfSkippableEdges] = i;
+                ++numOfSkippableEdges;
+            }
+        }
+        sort(sortedEdgeIDs, sortedCriticalDs, 0, numOfSkippableEdges - 1);
+    }
 
+    /**
+     * @param DTEdge
+     * @return smallest d for which a vertex C of an adjacent triangle is inside the diversion neighbourhood of
+     * the edge, NaN if there is no such d
+     */
+    private double getCriticalD(Line DTEdge) {
+        double criticalD = Double.NaN;
+        for (int triangleID : DTEdge.getAdjacentNeighbours()) {
+            if (triangleID != -1) {
+                //Vertex C of triangle, which is not on evaluating edge
+                Coordinate c = getPointNotOnEdge(DTEdge, delaunayTriangulation.getTriangleSet().get(triangleID));
+                Coordinate[] endpoints = DTEdge.getEndPoints();
+                double AB = endpoints[0].distance(endpoints[1]),
+                        AC = endpoints[0].distance(c),
+                        BC = endpoints[1].distance(c);
+                //AB^d >= AC^d + BC^d from the root of the equation on, only possible if AB is the longest side.
+                //If AB is equal to another side there is no root, C is inside the neighbourhood at infinity only
+                if (AB >= AC && AB >= BC) {
+                    double triangleCriticalD = solveForD(AB, AC, BC);
+                    if (!(criticalD <= triangleCriticalD)) {
+                        criticalD = triangleCriticalD;
+                    }
+                }
+            }
+        }
+        return criticalD;
     }
 
     public ArrayList<Line> getDiversionGraph(double d) {
-        ArrayList<Line> newGraphAtD = new ArrayList<>();
+        checkD(d);
+        //edges with a critical d well below d are skipped and the ones well above it are kept,
+        //edges with a critical d at about d are checked on their triangles
+        int first = getFirstEdgeIndex(d * (1 - CRITICAL_D_TOLERANCE)),
+                last = getFirstEdgeIndex(d * (1 + CRITICAL_D_TOLERANCE));
+        ArrayList<Line> newGraphAtD = new ArrayList<>(DTEdges.length - first);
 
-        for (Line DTEdge: delaunayTriangulation.getDelaunayEdges()) {
+        for (int i = first; i < last; i++) {
+            Line DTEdge = DTEdges[sortedEdgeIDs[i]];
             if (isToSkipFromDiversionGraph(DTEdge, d)) {
                 continue; //skip this edge
             } else {
                 newGraphAtD.add(DTEdge);
             }
         }
+        for (int i = last; i < DTEdges.length; i++) {
+            newGraphAtD.add(DTEdges[sortedEdgeIDs[i]]);
+        }
         return newGraphAtD;
     }
 
+    /**
+     * @param d
+     * @return edges of the diversion graph as a set of edge IDs, valid only until the triangulation changes
+     */
+    public ProximityGraphResult getDiversionGraphResult(double d) {
+        checkD(d);
+        int first = getFirstEdgeIndex(d * (1 - CRITICAL_D_TOLERANCE)),
+                last = getFirstEdgeIndex(d * (1 + CRITICAL_D_TOLERANCE));
+        BitSet edgeIDs = new BitSet(delaunayTriangulation.getNumOfHalfEdgeIndexes());
+        for (int i = first; i < DTEdges.length; i++) {
+            Line DTEdge = DTEdges[sortedEdgeIDs[i]];
+            if (i >= last || !isToSkipFromDiversionGraph(DTEdge, d)) {
+                edgeIDs.set(DTEdge.getEdgeID());
+            }
+        }
+        return new ProximityGraphResult(delaunayTriangulation, edgeIDs);
+    }
+
+    private void checkD(double d) {
+        if (!(d >= minD)) {
+            throw new IllegalArgumentException("d should not be below " + minD + " for the candidate edges");
+        }
+    }
+
+    /**
+     * @return number of edges with a critical d, the candidates if there are any, otherwise the Delaunay edges
+     */
+    public int getNumOfCriticalDs() {
+        return sortedCriticalDs.length;
+    }
+
+    /**
+     * Binary search on the sorted critical d values
+     * @param d
+     * @return index of the first edge in the sorted order with a critical d above d
+     */
+    private int getFirstEdgeIndex(double d) {
+        int low = 0, high = numOfSkippableEdges;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedCriticalDs[middle] <= d) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
     private boolean isToSkipFromDiversionGraph(Line DTEdge, double d) {
         int[] adjacentNeighbours = DTEdge.getAdjacentNeighbours();
 
         for (int triangleID : adjacentNeighbours) {
-            if (triangleID != -1) {
-                //Vertex C of triangle, which is not on evaluating edge
-                Coordinate c = getPointNotOnEdge(DTEdge, delaunayTriangulation.getTriangleSet().get(triangleID));
-                if (isCInsideDiversionNeighbourhood(DTEdge, c, d)) {
-                    return true;
-                }
+            if (triangleID != -1 &&
+                    isCInsideDiversionNeighbourhood(DTEdge, delaunayTriangulation.getTriangleSet().get(triangleID), d)) {
+                return true;
             }
         }
         return false;
     }
 
-    private boolean isCInsideDiversionNeighbourhood(Line dtEdge, Coordinate c, double d) {
-        Coordinate[] endpoints = dtEdge.getEndPoints();
-        double AB = endpoints[0].distance(endpoints[1]),
-                AC = endpoints[0].distance(c),
-                BC = endpoints[1].distance(c),
-                minLength;
-
-        if (d < Double.POSITIVE_INFINITY) {
-            //Standardising the triangle by dividing edge lengths with minLength
-            minLength = Math.min(AB, Math.min(AC, BC));
-
-            AB = AB / minLength;
-            AC = AC / minLength;
-            BC = BC / minLength;
-
-            return (Math.pow(AB, d) >= (Math.pow(AC, d) + Math.pow(BC, d)));
-        } else {
-            return (AB >= AC && AB >= BC);
+    //AC and BC are the other edges of the triangle, their logarithmic lengths are kept by the edges
+    private boolean isCInsideDiversionNeighbourhood(Line dtEdge, Triangle triangle, double d) {
+        double logAC = Double.NaN, logBC = Double.NaN;
+        for (Line edge : triangle.getEdges()) {
+            if (edge == dtEdge) {
+                continue;
+            }
+            if (Double.isNaN(logAC)) {
+                logAC = edge.getLogLength();
+            } else {
+                logBC = edge.getLogLength();
+            }
         }
+        return isInsideDiversionNeighbourhood(dtEdge.getLogLength(), logAC, logBC, d);
     }
 }
@@ -17,74 +17,112 @@
 package au.edu.unimelb.cis.geo.controller;
 
 import au.edu.unimelb.cis.geo.model.Line;
-import au.edu.unimelb.cis.geo.model.Triangle;
-import org.locationtech.jts.geom.Coordinate;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-import static au.edu.unimelb.cis.geo.controller.utils.util.getPointNotOnEdge;
+import static au.edu.unimelb.cis.geo.controller.DelaunayTriangulation.nextHalfEdge;
+import static au.edu.unimelb.cis.geo.controller.DelaunayTriangulation.previousHalfEdge;
+import static au.edu.unimelb.cis.geo.controller.utils.util.isOutsideDiametricCircle;
 
 public class GabrielGraph {
-    private HashMap<String, Line> edgeSet = new HashMap<String, Line>();
+    //half-edges fewer than this are tested in the calling thread, a multiple of 64 so that tasks own whole words
+    private static final int SEQUENTIAL_THRESHOLD = 64 * 256;
     private DelaunayTriangulation delaunayTriangulation;
+    //bit h is set if the edge of half-edge h is a Gabriel edge, only for one half-edge of each edge.
+    //Each task writes its own words, so no word is written by two threads
+    private long[] gabrielEdgeBits;
+    private int numOfGabrielEdges;
 
     public GabrielGraph(DelaunayTriangulation delaunayTriangulation) {
-        this.delaunayTriangulation = delaunayTriangulation;
-        HashMap<String, Line> delaunayEdgeSet = delaunayTriangulation.getEdgeSet();
-        HashMap<Integer, Triangle> delaunayTriangleSet = delaunayTriangulation.getTriangleSet();
-        //For each Delaunay edge
-        for (String delaunayEdgeKey :delaunayEdgeSet.keySet()) {
-            Line edge = delaunayEdgeSet.get(delaunayEdgeKey);
-            //Check for each neighbouring triangle
-            int[] neighbouringTriangleIndexes = edge.getAdjacentNeighbours();
-            boolean[] cOutsideDiametericCircle = {true, true};
-            int i = 0;
-            for (int index :neighbouringTriangleIndexes) {
-                if (index == -1) {
-                    continue;
-                }
+        this(delaunayTriangulation, ForkJoinPool.commonPool());
+    }
 
-                Triangle delaunayTriangle = delaunayTriangleSet.get(index);
-                //Whether the vertex of triangle, not on the edge
-                Coordinate c = getPointNotOnEdge(edge, delaunayTriangle);
-                //is outside the circle of which, edge is the diameter
-                cOutsideDiametericCircle[i] = isPointOutsideDiametericCircle(c, edge);
-                i++;
-            }
-            //if both vertices of the neighbouring triangles are outside
-            //the diametric circle of the edge, then add it to Gabriel edge set
-            if (cOutsideDiametericCircle[0] && cOutsideDiametericCircle[1]) {
-//            if ((neighbouringTriangleIndexes[0] != -1 && cOutsideDiametericCircle[0]) &&
-//                    (neighbouringTriangleIndexes[1] != -1 && cOutsideDiametericCircle[1])) {
-                edgeSet.put(delaunayEdgeKey, edge);
-            }
+    /**
+     * @param delaunayTriangulation
+     * @param pool edges are tested in parallel on this pool, on the half-edges of the triangulation
+     */
+    public GabrielGraph(DelaunayTriangulation delaunayTriangulation, ForkJoinPool pool) {
+        this.delaunayTriangulation = delaunayTriangulation;
+        int numOfHalfEdges = delaunayTriangulation.getNumOfHalfEdgeIndexes();
+        gabrielEdgeBits = new long[(numOfHalfEdges + 63) >>> 6];
+        pool.invoke(new TestEdges(0, numOfHalfEdges));
+        for (long word : gabrielEdgeBits) {
+            numOfGabrielEdges += Long.bitCount(word);
         }
     }
 
-    private boolean isPointOutsideDiametericCircle(Coordinate c, Line edge) {
-        Coordinate[] endpoints = edge.getEndPoints();
-        double AB = endpoints[0].distance(endpoints[1]),
-                AC = endpoints[0].distance(c),
-                BC = endpoints[1].distance(c),
-                minLength;
+    /**
+     * Tests the edges of the half-edges in range [from, to), splitting the range between tasks
+     */
+    private class TestEdges extends RecursiveAction {
+        private final int from, to;
 
-        //if one of edge lengths < 1, then find minimum length edge
-        //and divide edge lengths with minLength
-        if (AB < 1 || AC < 1 || BC < 1) {
-            minLength = Math.min(AB, Math.min(AC, BC));
+        TestEdges(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
 
-            AB = AB / minLength;
-            AC = AC / minLength;
-            BC = BC / minLength;
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int halfEdge = from; halfEdge < to; halfEdge++) {
+                    if (isGabrielEdge(halfEdge)) {
+                        gabrielEdgeBits[halfEdge >>> 6] |= 1L << halfEdge;
+                    }
+                }
+                return;
+            }
+            //split at a word boundary
+            int middle = from + (((to - from) >>> 7) << 6);
+            invokeAll(new TestEdges(from, middle), new TestEdges(middle, to));
         }
+    }
+
+    /**
+     * @param halfEdge
+     * @return true if the half-edge is the one of its edge that is tested, and the vertices C of the triangles
+     * on both sides of the edge are outside the circle of which, edge is the diameter
+     */
+    private boolean isGabrielEdge(int halfEdge) {
+        int twin = delaunayTriangulation.getTwin(halfEdge);
+        if (delaunayTriangulation.getOrigin(halfEdge) == -1 || (twin != -1 && twin < halfEdge)) {
+            return false; //removed triangle or the edge is tested through its twin
+        }
+        return isPointOutsideDiametericCircle(halfEdge) && (twin == -1 || isPointOutsideDiametericCircle(twin));
+    }
 
-        return (Math.pow(AB, 2) < (Math.pow(AC, 2) + Math.pow(BC, 2)));
+    //vertex C of the triangle of the half-edge, which is not on the edge
+    private boolean isPointOutsideDiametericCircle(int halfEdge) {
+        int a = delaunayTriangulation.getOrigin(halfEdge),
+                b = delaunayTriangulation.getOrigin(nextHalfEdge(halfEdge)),
+                c = delaunayTriangulation.getOrigin(previousHalfEdge(halfEdge));
+        return isOutsideDiametricCircle(delaunayTriangulation.getX(a), delaunayTriangulation.getY(a),
+                delaunayTriangulation.getX(b), delaunayTriangulation.getY(b),
+                delaunayTriangulation.getX(c), delaunayTriangulation.getY(c));
     }
 
+    /**
+     * Lines of the Gabriel edges, looked up from the edge bits on each request
+     * Half-edges are renumbered when the triangulation changes, the graph is valid only until then
+     * @return
+     */
     public ArrayList<Line> getEdgeList() {
-        ArrayList<Line> gabrielEdges = new ArrayList<>(edgeSet.size());
-        gabrielEdges.addAll(edgeSet.values());
+        ArrayList<Line> gabrielEdges = new ArrayList<>(numOfGabrielEdges);
+        for (int i = 0; i < gabrielEdgeBits.length; i++) {
+            for (long word = gabrielEdgeBits[i]; word != 0; word &= word - 1) {
+                gabrielEdges.add(delaunayTriangulation.getLine((i << 6) + Long.numberOfTrailingZeros(word)));
+            }
+        }
         return gabrielEdges;
     }
+
+    /**
+     * @return Gabriel edges as a set of edge IDs, valid only until the triangulation changes
+     */
+    public ProximityGraphResult getResult() {
+        return new ProximityGraphResult(delaunayTriangulation, BitSet.valueOf(gabrielEdgeBits));
+    }
 }
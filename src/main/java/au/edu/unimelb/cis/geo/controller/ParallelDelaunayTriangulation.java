@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2020, Sameera Kannangara (dlskannangara@gmail.com) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.edu.unimelb.cis.geo.controller;
+
+import org.locationtech.jts.geom.Coordinate;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntToDoubleFunction;
+
+import static au.edu.unimelb.cis.geo.controller.utils.RobustPredicates.inCircle;
+import static au.edu.unimelb.cis.geo.controller.utils.RobustPredicates.orient2d;
+
+/**
+ * Delaunay triangulation computed with the divide and conquer algorithm of Guibas and Stolfi
+ * [https://doi.org/10.1145/282918.282923]
+ * Points sorted on x are split into slabs that are triangulated in parallel on a ForkJoinPool,
+ * then neighbouring slabs are merged by stitching them along their common lower and upper tangents.
+ * The resulting edges and triangles are exposed through the same views as DelaunayTriangulation.
+ */
+public class ParallelDelaunayTriangulation extends DelaunayTriangulation {
+    //slabs with fewer points than this are triangulated in the calling thread
+    private static final int SEQUENTIAL_THRESHOLD = 4096;
+
+    public ParallelDelaunayTriangulation(Set<Coordinate> pointSet) {
+        this(pointSet, ForkJoinPool.commonPool());
+    }
+
+    public ParallelDelaunayTriangulation(Set<Coordinate> pointSet, ForkJoinPool pool) {
+        setUniqueCoordinates(pointSet);
+        int numOfPoints = getNumOfVertices();
+
+        //validate number of points
+        if (numOfPoints < 3) {
+            return; //not enough points
+        }
+
+        //parallel sorts run on the pool of their calling task
+        int[] sortedIDs = pool.submit(this::getSortedIDs).join();
+
+        Edge[] hullEdges = pool.invoke(new Triangulate(sortedIDs, 0, numOfPoints));
+        addTriangles(hullEdges[0]);
+    }
+
+    /**
+     * Vertex IDs sorted on x and then y, as primitive keys
+     * Each key holds a rank in the upper bits and a position in the lower bits. The IDs are sorted on the rank
+     * of y first, then on the rank of x with the position in the y order breaking ties.
+     * @return
+     */
+    private int[] getSortedIDs() {
+        int numOfPoints = getNumOfVertices();
+        int[] yRanks = getRanks(this::getY);
+        long[] keys = new long[numOfPoints];
+        Arrays.parallelSetAll(keys, i -> ((long) yRanks[i] << 32) | i);
+        Arrays.parallelSort(keys);
+        int[] yOrder = new int[numOfPoints];
+        Arrays.parallelSetAll(yOrder, i -> (int) keys[i]);
+
+        int[] xRanks = getRanks(this::getX);
+        Arrays.parallelSetAll(keys, i -> ((long) xRanks[yOrder[i]] << 32) | i);
+        Arrays.parallelSort(keys);
+        int[] sortedIDs = new int[numOfPoints];
+        Arrays.parallelSetAll(sortedIDs, i -> yOrder[(int) keys[i]]);
+        return sortedIDs;
+    }
+
+    /**
+     * @param coordinates coordinate of each vertex ID
+     * @return rank of the coordinate of each vertex, equal for equal coordinates
+     */
+    private int[] getRanks(IntToDoubleFunction coordinates) {
+        double[] sortedCoordinates = new double[getNumOfVertices()];
+        Arrays.parallelSetAll(sortedCoordinates, coordinates);
+        Arrays.parallelSort(sortedCoordinates);
+        int[] ranks = new int[sortedCoordinates.length];
+        Arrays.parallelSetAll(ranks, i -> Arrays.binarySearch(sortedCoordinates, coordinates.applyAsDouble(i)));
+        return ranks;
+    }
+
+    /**
+     * Visits every edge reachable from given edge and adds each triangular face once,
+     * as the triangle of its lowest vertex ID
+     * Each half-edge of an added triangle is recorded on the directed edge going the same way,
+     * so it is linked to its twin by whichever of the two triangles is added last
+     * @param start
+     */
+    private void addTriangles(Edge start) {
+        ArrayDeque<Edge> edgesToVisit = new ArrayDeque<>();
+        edgesToVisit.push(start);
+        while (!edgesToVisit.isEmpty()) {
+            Edge e = edgesToVisit.pop();
+            if (e.visited) {
+                continue;
+            }
+            e.visited = true;
+            edgesToVisit.push(e.onext);
+            edgesToVisit.push(e.sym());
+
+            Edge e1 = e.lnext(), e2 = e1.lnext();
+            int a = e.origin, b = e1.origin, c = e2.origin;
+            //left face of e is a triangle if it closes in three steps and is counter clockwise,
+            //the outer face is clockwise
+            if (e2.lnext() == e && a < b && a < c && isCounterClockwise(a, b, c)) {
+                //triangles of DelaunayTriangulation are in clockwise order,
+                //its half-edges go from a to c, c to b and b to a, opposite to e2, e1 and e
+                int halfEdge = addTriangle(a, c, b);
+                setHalfEdge(e2.sym(), halfEdge);
+                setHalfEdge(e1.sym(), halfEdge + 1);
+                setHalfEdge(e.sym(), halfEdge + 2);
+            }
+        }
+    }
+
+    private void setHalfEdge(Edge e, int halfEdge) {
+        e.halfEdge = halfEdge;
+        if (e.sym().halfEdge != -1) {
+            linkHalfEdges(halfEdge, e.sym().halfEdge);
+        }
+    }
+
+    private boolean isCounterClockwise(int a, int b, int c) {
+        return orient2d(getX(a), getY(a), getX(b), getY(b), getX(c), getY(c)) > 0;
+    }
+
+    private boolean isRightOf(int vertex, Edge e) {
+        return isCounterClockwise(vertex, e.dest(), e.origin);
+    }
+
+    private boolean isLeftOf(int vertex, Edge e) {
+        return isCounterClockwise(vertex, e.origin, e.dest());
+    }
+
+    //true if d is inside the circle through a, b, c given in counter clockwise order
+    private boolean isInCircle(int a, int b, int c, int d) {
+        return inCircle(getX(a), getY(a), getX(b), getY(b), getX(c), getY(c), getX(d), getY(d)) > 0;
+    }
+
+    /**
+     * Triangulates the points of sortedIDs in range [from, to)
+     * The result is the counter clockwise convex hull edge out of the leftmost point
+     * and the clockwise convex hull edge out of the rightmost point
+     */
+    private class Triangulate extends RecursiveTask<Edge[]> {
+        private final int[] sortedIDs;
+        private final int from, to;
+
+        Triangulate(int[] sortedIDs, int from, int to) {
+            this.sortedIDs = sortedIDs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Edge[] compute() {
+            return triangulate(from, to);
+        }
+
+        private Edge[] triangulate(int from, int to) {
+            int size = to - from;
+            if (size == 2) {
+                Edge a = Edge.make(sortedIDs[from], sortedIDs[from + 1]);
+                return new Edge[]{a, a.sym()};
+            }
+            if (size == 3) {
+                int s1 = sortedIDs[from], s2 = sortedIDs[from + 1], s3 = sortedIDs[from + 2];
+                Edge a = Edge.make(s1, s2);
+                Edge b = Edge.make(s2, s3);
+                Edge.splice(a.sym(), b);
+                if (isCounterClockwise(s1, s2, s3)) {
+                    Edge.connect(b, a);
+                    return new Edge[]{a, b.sym()};
+                } else if (isCounterClockwise(s1, s3, s2)) {
+                    Edge c = Edge.connect(b, a);
+                    return new Edge[]{c.sym(), c};
+                }
+                //points are collinear
+                return new Edge[]{a, b.sym()};
+            }
+
+            int middle = from + size / 2;
+            Edge[] left, right;
+            if (size > SEQUENTIAL_THRESHOLD) {
+                Triangulate leftSlab = new Triangulate(sortedIDs, from, middle);
+                leftSlab.fork();
+                right = new Triangulate(sortedIDs, middle, to).compute();
+                left = leftSlab.join();
+            } else {
+                left = triangulate(from, middle);
+                right = triangulate(middle, to);
+            }
+            return merge(left[0], left[1], right[0], right[1]);
+        }
+
+        private Edge[] merge(Edge ldo, Edge ldi, Edge rdi, Edge rdo) {
+            //compute the lower common tangent of left and right slabs
+            while (true) {
+                if (isLeftOf(rdi.origin, ldi)) {
+                    ldi = ldi.lnext();
+                } else if (isRightOf(ldi.origin, rdi)) {
+                    rdi = rdi.rprev();
+                } else {
+                    break;
+                }
+            }
+
+            //create the first cross edge basel from rdi.origin to ldi.origin
+            Edge basel = Edge.connect(rdi.sym(), ldi);
+            if (ldi.origin == ldo.origin) {
+                ldo = basel.sym();
+            }
+            if (rdi.origin == rdo.origin) {
+                rdo = basel;
+            }
+
+            //merge upwards, adding one cross edge in each step
+            while (true) {
+                //locate the first left point to be encountered by the rising bubble,
+                //and delete left edges out of basel.dest that fail the circle test
+                Edge lcand = basel.sym().onext;
+                if (isValid(lcand, basel)) {
+                    while (isInCircle(basel.dest(), basel.origin, lcand.dest(), lcand.onext.dest())) {
+                        Edge t = lcand.onext;
+                        Edge.delete(lcand);
+                        lcand = t;
+                    }
+                }
+                //symmetrically, locate the first right point
+                Edge rcand = basel.oprev();
+                if (isValid(rcand, basel)) {
+                    while (isInCircle(basel.dest(), basel.origin, rcand.dest(), rcand.oprev().dest())) {
+                        Edge t = rcand.oprev();
+                        Edge.delete(rcand);
+                        rcand = t;
+                    }
+                }
+
+                boolean isLeftValid = isValid(lcand, basel),
+                        isRightValid = isValid(rcand, basel);
+                //if both are invalid, basel is the upper common tangent
+                if (!isLeftValid && !isRightValid) {
+                    break;
+                }
+                //the next cross edge connects to the candidate whose circle with basel is empty
+                if (!isLeftValid || (isRightValid &&
+                        isInCircle(lcand.dest(), lcand.origin, rcand.origin, rcand.dest()))) {
+                    basel = Edge.connect(rcand, basel.sym());
+                } else {
+                    basel = Edge.connect(basel.sym(), lcand.sym());
+                }
+            }
+            return new Edge[]{ldo, rdo};
+        }
+
+        private boolean isValid(Edge e, Edge basel) {
+            return isRightOf(e.dest(), basel);
+        }
+    }
+
+    /**
+     * Directed edge of the quad edge structure, each undirected edge is a ring of four of these
+     * connected through rot, two of them are the directions of the edge and two of them belong to the dual
+     */
+    private static final class Edge {
+        private int origin;
+        private Edge onext, rot;
+        private boolean visited;
+        //half-edge of the triangulation going the same way as this edge, -1 if not added yet
+        private int halfEdge = -1;
+
+        static Edge make(int origin, int dest) {
+            Edge e0 = new Edge(), e1 = new Edge(), e2 = new Edge(), e3 = new Edge();
+            e0.rot = e1;
+            e1.rot = e2;
+            e2.rot = e3;
+            e3.rot = e0;
+            e0.onext = e0;
+            e2.onext = e2;
+            e1.onext = e3;
+            e3.onext = e1;
+            e0.origin = origin;
+            e2.origin = dest;
+            return e0;
+        }
+
+        static void splice(Edge a, Edge b) {
+            Edge alpha = a.onext.rot, beta = b.onext.rot;
+            Edge temp = a.onext;
+            a.onext = b.onext;
+            b.onext = temp;
+            temp = alpha.onext;
+            alpha.onext = beta.onext;
+            beta.onext = temp;
+        }
+
+        //adds an edge from the destination of a to the origin of b, keeping the faces consistent
+        static Edge connect(Edge a, Edge b) {
+            Edge e = make(a.dest(), b.origin);
+            splice(e, a.lnext());
+            splice(e.sym(), b);
+            return e;
+        }
+
+        static void delete(Edge e) {
+            splice(e, e.oprev());
+            splice(e.sym(), e.sym().oprev());
+        }
+
+        Edge sym() {
+            return rot.rot;
+        }
+
+        Edge rotInverse() {
+            return rot.rot.rot;
+        }
+
+        Edge oprev() {
+            return rot.onext.rot;
+        }
+
+        Edge lnext() {
+            return rotInverse().onext.rot;
+        }
+
+        Edge rprev() {
+            return sym().onext;
+        }
+
+        int dest() {
+            return sym().origin;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2020, Sameera Kannangara (dlskannangara@gmail.com) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.edu.unimelb.cis.geo.controller;
+
+import au.edu.unimelb.cis.geo.model.Line;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Edges of a proximity graph as a set of Delaunay edge IDs, one bit per edge of the triangulation
+ * The ID of an edge is the smaller of its half-edges, see {@link Line#getEdgeID()}.
+ * Results of different graphs on the same triangulation can be combined, for example the edges of GG
+ * that are not in SSG(d) are gabrielGraph.getResult().andNot(steppingStoneGraph.getSteppingStoneGraphResult(d)).
+ * Half-edges are renumbered when the triangulation changes, a result is valid only until then.
+ */
+public class ProximityGraphResult {
+    private final DelaunayTriangulation delaunayTriangulation;
+    private final BitSet edgeIDs;
+
+    /**
+     * @param delaunayTriangulation
+     * @param edgeIDs taken as is, not copied
+     */
+    public ProximityGraphResult(DelaunayTriangulation delaunayTriangulation, BitSet edgeIDs) {
+        this.delaunayTriangulation = delaunayTriangulation;
+        this.edgeIDs = edgeIDs;
+    }
+
+    /**
+     * @param delaunayTriangulation
+     * @param edges edges of the triangulation
+     */
+    public ProximityGraphResult(DelaunayTriangulation delaunayTriangulation, Collection<Line> edges) {
+        this(delaunayTriangulation, new BitSet(delaunayTriangulation.getNumOfHalfEdgeIndexes()));
+        for (Line edge : edges) {
+            if (edge.getEdgeID() == -1) {
+                throw new IllegalArgumentException(edge + " is not an edge of the triangulation");
+            }
+            edgeIDs.set(edge.getEdgeID());
+        }
+    }
+
+    /**
+     * @param other
+     * @return edges in both results
+     */
+    public ProximityGraphResult and(ProximityGraphResult other) {
+        BitSet result = getEdgeIDs(other);
+        result.and(other.edgeIDs);
+        return new ProximityGraphResult(delaunayTriangulation, result);
+    }
+
+    /**
+     * @param other
+     * @return edges in this result and not in the other
+     */
+    public ProximityGraphResult andNot(ProximityGraphResult other) {
+        BitSet result = getEdgeIDs(other);
+        result.andNot(other.edgeIDs);
+        return new ProximityGraphResult(delaunayTriangulation, result);
+    }
+
+    /**
+     * @param other
+     * @return edges in either result
+     */
+    public ProximityGraphResult or(ProximityGraphResult other) {
+        BitSet result = getEdgeIDs(other);
+        result.or(other.edgeIDs);
+        return new ProximityGraphResult(delaunayTriangulation, result);
+    }
+
+    //copy of the edge IDs of this result, to be combined with the other
+    private BitSet getEdgeIDs(ProximityGraphResult other) {
+        if (other.delaunayTriangulation != delaunayTriangulation) {
+            throw new IllegalArgumentException("results are on different triangulations");
+        }
+        return (BitSet) edgeIDs.clone();
+    }
+
+    public DelaunayTriangulation getDelaunayTriangulation() {
+        return delaunayTriangulation;
+    }
+
+    /**
+     * @return number of edges
+     */
+    public int cardinality() {
+        return edgeIDs.cardinality();
+    }
+
+    public boolean contains(Line edge) {
+        return edge.getEdgeID() != -1 && edgeIDs.get(edge.getEdgeID());
+    }
+
+    /**
+     * @return copy of the edge IDs
+     */
+    public BitSet getEdgeIDs() {
+        return (BitSet) edgeIDs.clone();
+    }
+
+    /**
+     * Lines of the edges, looked up in the triangulation on each request
+     * @return
+     */
+    public ArrayList<Line> getEdgeList() {
+        ArrayList<Line> edges = new ArrayList<>(edgeIDs.cardinality());
+        for (int edgeID = edgeIDs.nextSetBit(0); edgeID >= 0; edgeID = edgeIDs.nextSetBit(edgeID + 1)) {
+            edges.add(delaunayTriangulation.getLine(edgeID));
+        }
+        return edges;
+    }
+}
@@ -17,135 +17,704 @@
 package au.edu.unimelb.cis.geo.controller;
 
 import au.edu.unimelb.cis.geo.model.Line;
-import org.locationtech.jts.geom.Coordinate;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntToDoubleFunction;
+
+import static au.edu.unimelb.cis.geo.controller.utils.util.D_TOLERANCE;
+import static au.edu.unimelb.cis.geo.controller.utils.util.MAX_D_ITERATIONS;
+import static au.edu.unimelb.cis.geo.controller.utils.util.solveForExponent;
+import static au.edu.unimelb.cis.geo.controller.utils.util.sort;
 
 public class ShortestPathGraph {
-    private ArrayList<Coordinate> uniqueCoordinates;
-    private HashMap<Coordinate, ArrayList<Line>> connections;
+    //t values closer than this, relative to t, to the critical t of an edge are checked with a search again
+    private static final double CRITICAL_T_TOLERANCE = 1e-9;
+    //number of t values whose edge weights are kept, each takes a double per Delaunay edge
+    private static final int NUM_OF_CACHED_EDGE_WEIGHTS = 2;
+    //consecutive edges in the sorted order checked together against the graph built before them by a batched build
+    private static final int BATCH_SIZE = 4096;
+    //edges of a batch fewer than this are checked in the calling thread
+    private static final int SEQUENTIAL_THRESHOLD = 256;
     private HashMap<String, Line> edgeSet;
     private DelaunayTriangulation delaunayTriangulation;
     private ArrayList<Line> sortedDelaunayEdges;
     private Line minLengthLine;
+    //vertex IDs of the end points of each sorted edge at 2 * i and 2 * i + 1
+    private int[] edgeVertexIDs;
+    //(length / minimum length)^t of each sorted edge for the last used t values, least recently used first
+    private LinkedHashMap<Double, double[]> edgeWeightsCache =
+            new LinkedHashMap<Double, double[]>(NUM_OF_CACHED_EDGE_WEIGHTS + 1, 1, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Double, double[]> eldest) {
+                    return size() > NUM_OF_CACHED_EDGE_WEIGHTS;
+                }
+            };
+    //number of sorted edges shorter than each edge, only those can be on a path that skips the edge
+    private int[] numOfShorterEdges;
+
+    //smallest t at which each edge is skipped from SPG(t), sorted with the indexes of their edges,
+    //infinity for the edges kept for every finite t
+    private double[] sortedCriticalTs;
+    private int[] sortedCriticalT_EdgeIDs;
+    private double[] lengths;
+    private double[] pathLogRatios = new double[16];
+
+    //adjacency lists of the graph being built, as linked lists of edge ends starting from each vertex
+    private int[] firstEdgeEnds, nextEdgeEnds;
+    //search used by sequential builds and by the spectrum
+    private PathSearch pathSearch;
 
     public ShortestPathGraph(DelaunayTriangulation delaunayTriangulation) {
+        this(delaunayTriangulation, false);
+    }
+
+    /**
+     * @param delaunayTriangulation
+     * @param isT_SpectrumCreated if true the critical t of each edge is computed up front,
+     *                            then SPG(t) for any t is read from the sorted critical t values
+     */
+    public ShortestPathGraph(DelaunayTriangulation delaunayTriangulation, boolean isT_SpectrumCreated) {
         this.delaunayTriangulation = delaunayTriangulation;
         edgeSet = delaunayTriangulation.getEdgeSet();
-        uniqueCoordinates = delaunayTriangulation.getUniqueCoordinates();
         sortedDelaunayEdges = new ArrayList<>(edgeSet.size());
         sortedDelaunayEdges.addAll(edgeSet.values());
         Collections.sort(sortedDelaunayEdges, (Comparator.<Line>
                 comparingDouble(edge1 -> edge1.getLength())
                 .thenComparingDouble(edge2 -> edge2.getLength())));
         minLengthLine = sortedDelaunayEdges.get(0);
+
+        edgeVertexIDs = new int[2 * sortedDelaunayEdges.size()];
+        for (int i = 0; i < sortedDelaunayEdges.size(); i++) {
+            edgeVertexIDs[2 * i] = delaunayTriangulation.getVertexID(sortedDelaunayEdges.get(i).getEndPoints()[0]);
+            edgeVertexIDs[2 * i + 1] = delaunayTriangulation.getVertexID(sortedDelaunayEdges.get(i).getEndPoints()[1]);
+        }
+        nextEdgeEnds = new int[edgeVertexIDs.length];
+
+        int numOfVertices = delaunayTriangulation.getNumOfVertices();
+        firstEdgeEnds = new int[numOfVertices];
+        pathSearch = new PathSearch();
+
+        //edges of equal length come one after the other
+        numOfShorterEdges = new int[sortedDelaunayEdges.size()];
+        for (int i = 1; i < numOfShorterEdges.length; i++) {
+            numOfShorterEdges[i] = sortedDelaunayEdges.get(i).getLength() == sortedDelaunayEdges.get(i - 1).getLength() ?
+                    numOfShorterEdges[i - 1] : i;
+        }
+
+        if (isT_SpectrumCreated) {
+            createT_Spectrum();
+        }
     }
 
     public ArrayList<Line> getShortestPathGraphEdges(double t) {
-        boolean isInfinity = false;
-        isInfinity = t == Double.POSITIVE_INFINITY ? true : false;
-        t = isInfinity ? 1 : t;
+        if (t == Double.POSITIVE_INFINITY) {
+            //any path from current SPG(t) skips the edge, only connectivity matters
+            return getMinimumSpanningTreeEdges();
+        }
+        if (sortedCriticalTs != null) {
+            return getShortestPathGraphEdgesFromT_Spectrum(t);
+        }
+
+        return getShortestPathGraphEdges(getEdgeWeights(t), null);
+    }
+
+    /**
+     * SPG(t) built on the edges of a graph that contains it, such as SPG(t') for t' < t or GG for t >= 2
+     * Edges that are not candidates are not searched for. Every edge of SPG(t) is a candidate,
+     * so the paths that skip a candidate are found on the candidates as well.
+     * @param t
+     * @param candidates result of a graph on the same triangulation that contains SPG(t)
+     * @return
+     */
+    public ArrayList<Line> getShortestPathGraphEdges(double t, ProximityGraphResult candidates) {
+        if (candidates.getDelaunayTriangulation() != delaunayTriangulation) {
+            throw new IllegalArgumentException("candidates are on a different triangulation");
+        }
+        if (t == Double.POSITIVE_INFINITY) {
+            return getMinimumSpanningTreeEdges();
+        }
+        if (sortedCriticalTs != null) {
+            return getShortestPathGraphEdgesFromT_Spectrum(t);
+        }
+        return getShortestPathGraphEdges(getEdgeWeights(t), candidates);
+    }
+
+    /**
+     * @param edgeWeights
+     * @param candidates only these edges are searched for, all edges if null
+     * @return
+     */
+    private ArrayList<Line> getShortestPathGraphEdges(double[] edgeWeights, ProximityGraphResult candidates) {
+        Arrays.fill(firstEdgeEnds, -1);
+
+        ArrayList<Line> shortestPathGraphEdges = new ArrayList<>(
+                candidates == null ? edgeSet.size() : candidates.cardinality());
+        for (int i = 0; i < edgeWeights.length; i++) {
+            if (candidates != null && !candidates.contains(sortedDelaunayEdges.get(i))) {
+                continue;
+            }
+            if (!hasShortestPath(pathSearch, i, edgeWeights)) {
+                shortestPathGraphEdges.add(sortedDelaunayEdges.get(i));
+                addEdge(i);
+            }
+        }
+        return shortestPathGraphEdges;
+    }
+
+    /**
+     * Same edges as the sequential build, with the searches of each batch of edges run in parallel on the pool
+     * Consecutive edges in the sorted order are checked together against the graph built before their batch,
+     * then added in the sorted order. Any path through an edge kept earlier in the batch passes a vertex reached
+     * by the search on the graph before the batch, so only searches that reached an end point of such an edge
+     * are run again on the grown graph.
+     * @param t
+     * @param pool
+     * @return
+     */
+    public ArrayList<Line> getShortestPathGraphEdges(double t, ForkJoinPool pool) {
+        if (t == Double.POSITIVE_INFINITY) {
+            return getMinimumSpanningTreeEdges();
+        }
+        if (sortedCriticalTs != null) {
+            return getShortestPathGraphEdgesFromT_Spectrum(t);
+        }
+
+        double[] edgeWeights = getEdgeWeights(t);
+        Arrays.fill(firstEdgeEnds, -1);
+        //last batch in which an edge was kept at each vertex
+        int[] vertexBatchIDs = new int[firstEdgeEnds.length];
+        //vertices reached by the search of each edge of the batch, null if the edge is skipped
+        int[][] reachedVertices = new int[BATCH_SIZE][];
+        //searches of the tasks are dropped with the build, the pool threads keep no reference to the graph
+        BatchPathSearches batchPathSearches = new BatchPathSearches(pool);
 
-        connections = new HashMap<>(uniqueCoordinates.size());
         ArrayList<Line> shortestPathGraphEdges = new ArrayList<>(edgeSet.size());
-        for (Line DTEdge :sortedDelaunayEdges) {
-            //Get shortest path from current SPG(t)
-            ArrayList<Line> shortestPathFromSPG = getShortestPath(DTEdge, t);
-            double shortestPathWeight = getWeight(shortestPathFromSPG, t);
-            double edgeWeight = Math.pow(DTEdge.getLength()/minLengthLine.getLength(), t);
-            int skipped = 0, added = 0;
-            if ((!isInfinity && shortestPathWeight <= edgeWeight) || (isInfinity && shortestPathFromSPG != null)) {
-                skipped++;
-            } else {
-                shortestPathGraphEdges.add(DTEdge);
-                //add connection to endpoints
-                Coordinate[] endPoints = DTEdge.getEndPoints();
-                for (Coordinate endPoint : endPoints) {
-                    if (connections.containsKey(endPoint)) {
-                        ArrayList<Line> adjLines = connections.get(endPoint);
-                        adjLines.add(DTEdge);
-                    } else {
-                        ArrayList<Line> adjLines = new ArrayList<>();
-                        adjLines.add(DTEdge);
-                        connections.put(endPoint, adjLines);
+        for (int from = 0, batchID = 1; from < edgeWeights.length; from += BATCH_SIZE, batchID++) {
+            int to = Math.min(from + BATCH_SIZE, edgeWeights.length);
+            pool.invoke(new CheckEdges(edgeWeights, reachedVertices, batchPathSearches, from, from, to));
+
+            for (int i = from; i < to; i++) {
+                if (reachedVertices[i - from] == null) {
+                    continue;
+                }
+                boolean isKept = true;
+                for (int vertexID : reachedVertices[i - from]) {
+                    if (vertexBatchIDs[vertexID] == batchID) {
+                        isKept = !hasShortestPath(pathSearch, i, edgeWeights);
+                        break;
                     }
                 }
-                added++;
+                reachedVertices[i - from] = null;
+
+                if (isKept) {
+                    shortestPathGraphEdges.add(sortedDelaunayEdges.get(i));
+                    addEdge(i);
+                    vertexBatchIDs[edgeVertexIDs[2 * i]] = batchID;
+                    vertexBatchIDs[edgeVertexIDs[2 * i + 1]] = batchID;
+                }
             }
         }
         return shortestPathGraphEdges;
     }
 
-    private ArrayList<Line> getShortestPath(Line dtEdge, double t) {
-        Coordinate[] endPoints = dtEdge.getEndPoints();
+    /**
+     * Searches of a batched build, one per thread of the pool by its pool index and one for the thread
+     * that waits on the pool, which can run tasks too. Each search is only used by its own thread.
+     * Threads added by the pool beyond its parallelism get a search for the task only.
+     */
+    private class BatchPathSearches {
+        private final ForkJoinPool pool;
+        private final Thread callingThread = Thread.currentThread();
+        private final PathSearch[] searches;
 
-        //if one of end points does not have connections, there cannot be a path
-        if (!connections.containsKey(endPoints[0]) || !connections.containsKey(endPoints[1])) {
-            return null;
+        BatchPathSearches(ForkJoinPool pool) {
+            this.pool = pool;
+            searches = new PathSearch[pool.getParallelism() + 1];
         }
 
-        HashMap<Coordinate, ArrayList<Line>> shortestPaths = new HashMap<>();
-        HashMap<Coordinate, Double> shortestPathsDistances = new HashMap<>();
-        HashSet<Coordinate> completed = new HashSet<>();
+        PathSearch get() {
+            Thread thread = Thread.currentThread();
+            int index;
+            if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool) {
+                index = ((ForkJoinWorkerThread) thread).getPoolIndex();
+                if (index >= searches.length - 1) {
+                    return new PathSearch();
+                }
+            } else if (thread == callingThread) {
+                index = searches.length - 1;
+            } else {
+                return new PathSearch();
+            }
+            if (searches[index] == null) {
+                searches[index] = new PathSearch();
+            }
+            return searches[index];
+        }
+    }
 
-        //find shortest path from endPoints[0] to endPoints[1]
-        PriorityQueue<Coordinate> priorityQueue = new PriorityQueue<>((Comparator.<Coordinate>
-                comparingDouble(point1 -> shortestPathsDistances.get(point1))
-                .thenComparingDouble(point2 -> shortestPathsDistances.get(point2))));
+    /**
+     * Searches for the edges of a batch in range [from, to), splitting the range between tasks
+     * Tasks only read the graph, each thread has its own search.
+     */
+    private class CheckEdges extends RecursiveAction {
+        private final double[] edgeWeights;
+        private final int[][] reachedVertices;
+        private final BatchPathSearches searches;
+        private final int batchFrom, from, to;
 
-        shortestPathsDistances.put(endPoints[0], 0.0);
-        shortestPaths.put(endPoints[0], new ArrayList<>());
-        priorityQueue.add(endPoints[0]);
+        CheckEdges(double[] edgeWeights, int[][] reachedVertices, BatchPathSearches searches,
+                   int batchFrom, int from, int to) {
+            this.edgeWeights = edgeWeights;
+            this.reachedVertices = reachedVertices;
+            this.searches = searches;
+            this.batchFrom = batchFrom;
+            this.from = from;
+            this.to = to;
+        }
 
-        while(!priorityQueue.isEmpty()) {
-            Coordinate tempPoint = priorityQueue.remove();
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                PathSearch search = searches.get();
+                for (int i = from; i < to; i++) {
+                    reachedVertices[i - batchFrom] = hasShortestPath(search, i, edgeWeights) ?
+                            null : search.getReachedVertices();
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CheckEdges(edgeWeights, reachedVertices, searches, batchFrom, from, middle),
+                    new CheckEdges(edgeWeights, reachedVertices, searches, batchFrom, middle, to));
+        }
+    }
 
-            //if point is already processed skip further processing
-            if (completed.contains(tempPoint)) {
-                continue;
+    /**
+     * @param search
+     * @param edgeID
+     * @param edgeWeights
+     * @return true if the end points of the edge are connected by a path of shorter edges not heavier than the edge
+     */
+    private boolean hasShortestPath(PathSearch search, int edgeID, double[] edgeWeights) {
+        //a path through an edge of the same length is heavier, even when rounding hides the other edges
+        return search.hasShortestPath(edgeVertexIDs[2 * edgeID], edgeVertexIDs[2 * edgeID + 1], edgeWeights[edgeID],
+                numOfShorterEdges[edgeID], otherEdgeID -> edgeWeights[otherEdgeID]);
+    }
+
+    //add connection to endpoints
+    private void addEdge(int edgeID) {
+        for (int edgeEnd = 2 * edgeID; edgeEnd < 2 * edgeID + 2; edgeEnd++) {
+            nextEdgeEnds[edgeEnd] = firstEdgeEnds[edgeVertexIDs[edgeEnd]];
+            firstEdgeEnds[edgeVertexIDs[edgeEnd]] = edgeEnd;
+        }
+    }
+
+    /**
+     * @param t
+     * @return edges of SPG(t) as a set of edge IDs, valid only until the triangulation changes
+     */
+    public ProximityGraphResult getShortestPathGraphResult(double t) {
+        return new ProximityGraphResult(delaunayTriangulation, getShortestPathGraphEdges(t));
+    }
+
+    /**
+     * @param t
+     * @param candidates result of a graph on the same triangulation that contains SPG(t)
+     * @return edges of SPG(t) as a set of edge IDs, found among the candidates
+     */
+    public ProximityGraphResult getShortestPathGraphResult(double t, ProximityGraphResult candidates) {
+        return new ProximityGraphResult(delaunayTriangulation, getShortestPathGraphEdges(t, candidates));
+    }
+
+    /**
+     * Weights are computed once for a t and reused by every search of a build, and by later builds with the same t
+     * @param t
+     * @return (length / minimum length)^t of each sorted edge
+     */
+    private double[] getEdgeWeights(double t) {
+        double[] edgeWeights = edgeWeightsCache.get(t);
+        if (edgeWeights == null) {
+            edgeWeights = new double[sortedDelaunayEdges.size()];
+            for (int i = 0; i < edgeWeights.length; i++) {
+                edgeWeights[i] = Math.pow(sortedDelaunayEdges.get(i).getLength()/minLengthLine.getLength(), t);
             }
+            edgeWeightsCache.put(t, edgeWeights);
+        }
+        return edgeWeights;
+    }
 
-            completed.add(tempPoint);
+    /**
+     * Euclidean minimum spanning tree of the points, which is SPG(infinity)
+     * Kruskal's algorithm on the Delaunay edges sorted on length, with a union-find over vertex IDs
+     * @return
+     */
+    public ArrayList<Line> getMinimumSpanningTreeEdges() {
+        //parent of each vertex in its set, roots hold minus the size of their set
+        int[] parents = new int[firstEdgeEnds.length];
+        Arrays.fill(parents, -1);
 
-            if (tempPoint == endPoints[1]) {
-                return shortestPaths.get(tempPoint);
+        ArrayList<Line> minimumSpanningTreeEdges = new ArrayList<>(Math.max(parents.length - 1, 0));
+        for (int i = 0; i < sortedDelaunayEdges.size() && minimumSpanningTreeEdges.size() < parents.length - 1; i++) {
+            //no union if there is a path between the end points already
+            if (union(parents, edgeVertexIDs[2 * i], edgeVertexIDs[2 * i + 1])) {
+                minimumSpanningTreeEdges.add(sortedDelaunayEdges.get(i));
             }
+        }
+        return minimumSpanningTreeEdges;
+    }
 
-            ArrayList<Line> adjLines = connections.get(tempPoint);
+    /**
+     * Joins the sets of given vertices
+     * @param parents
+     * @param vertexID1
+     * @param vertexID2
+     * @return false if the vertices are in the same set already
+     */
+    private static boolean union(int[] parents, int vertexID1, int vertexID2) {
+        int root1 = findRoot(parents, vertexID1),
+                root2 = findRoot(parents, vertexID2);
+        if (root1 == root2) {
+            return false;
+        }
+        //union by size keeps the trees shallow
+        if (parents[root1] > parents[root2]) {
+            int temp = root1;
+            root1 = root2;
+            root2 = temp;
+        }
+        parents[root1] += parents[root2];
+        parents[root2] = root1;
+        return true;
+    }
 
-            for (Line adjLine: adjLines) {
-                //find other coordinate
-                Coordinate otherPoint = adjLine.getEndPoints()[0] == tempPoint ?
-                        adjLine.getEndPoints()[1] : adjLine.getEndPoints()[0];
+    private static int findRoot(int[] parents, int vertexID) {
+        while (parents[vertexID] >= 0) {
+            //path halving
+            if (parents[parents[vertexID]] >= 0) {
+                parents[vertexID] = parents[parents[vertexID]];
+            }
+            vertexID = parents[vertexID];
+        }
+        return vertexID;
+    }
 
-                ArrayList<Line> tempPath = (ArrayList<Line>) shortestPaths.get(tempPoint).clone();
-                tempPath.add(adjLine);
-                double tempPathWeight = getWeight(tempPath, t);
-                //if tempPath is shorter than otherPoints current path, set tempPath as other points shortest path
-                double currentPathWeight = shortestPathsDistances.containsKey(otherPoint) ?
-                        shortestPathsDistances.get(otherPoint) : Double.POSITIVE_INFINITY;
-                if (tempPathWeight < currentPathWeight) {
-                    shortestPathsDistances.put(otherPoint, tempPathWeight);
-                    shortestPaths.put(otherPoint, tempPath);
-                    priorityQueue.add(otherPoint);
+    /**
+     * An edge with length L is in SPG(t) as long as every path of shorter edges between its end points has
+     * sum((length / L)^t) above 1. The sum is decreasing in t, so the edge is skipped from the t at which
+     * the lightest path reaches 1 on, and SPG(t) is nested in SPG(t') for t' < t.
+     * Edges are added in groups of equal length, the critical t of each edge is found on the edges added before.
+     */
+    private void createT_Spectrum() {
+        int numOfEdges = sortedDelaunayEdges.size();
+        lengths = new double[numOfEdges];
+        for (int i = 0; i < numOfEdges; i++) {
+            lengths[i] = sortedDelaunayEdges.get(i).getLength();
+        }
+        double[] criticalTs = new double[numOfEdges];
+        int[] parents = new int[firstEdgeEnds.length];
+        Arrays.fill(parents, -1);
+        Arrays.fill(firstEdgeEnds, -1);
+
+        for (int i = 0; i < numOfEdges; i++) {
+            //there is no path of shorter edges for an edge of the minimum spanning tree
+            criticalTs[i] = findRoot(parents, edgeVertexIDs[2 * i]) == findRoot(parents, edgeVertexIDs[2 * i + 1]) ?
+                    getCriticalT(i) : Double.POSITIVE_INFINITY;
+
+            if (i + 1 == numOfEdges || numOfShorterEdges[i + 1] == i + 1) {
+                //last edge of its length, add the group
+                for (int j = numOfShorterEdges[i]; j <= i; j++) {
+                    union(parents, edgeVertexIDs[2 * j], edgeVertexIDs[2 * j + 1]);
+                    addEdge(j);
                 }
             }
         }
 
-        return shortestPaths.containsKey(endPoints[1]) ? shortestPaths.get(endPoints[1]) : null;
+        sortedCriticalTs = criticalTs;
+        sortedCriticalT_EdgeIDs = new int[numOfEdges];
+        for (int i = 0; i < numOfEdges; i++) {
+            sortedCriticalT_EdgeIDs[i] = i;
+        }
+        sort(sortedCriticalT_EdgeIDs, sortedCriticalTs, 0, numOfEdges - 1);
     }
 
-    private double getWeight(ArrayList<Line> tempPath, double t) {
-        if (tempPath == null) {
-            return Double.POSITIVE_INFINITY;
+    /**
+     * t is doubled until there is a path of shorter edges with sum((length / L)^t) <= 1,
+     * then lowered to the t at which a path found at t reaches 1, until no path is found below that t
+     * Each t found this way is not below the critical t, and the lightest path at the critical t stops the descent.
+     * @param edgeID index of an edge whose end points are connected by shorter edges
+     * @return infinity if no path reaches 1 before t overflows, as for edges barely longer than the edges of the path
+     */
+    private double getCriticalT(int edgeID) {
+        double t = 2;
+        while (!hasShortestPath(edgeID, t, 1)) {
+            t *= 2;
+            if (t == Double.POSITIVE_INFINITY) {
+                return t;
+            }
         }
+        while (true) {
+            double pathT = getPathT(edgeID);
+            //rounding can put the path just above 1 at its own t
+            if (!(pathT < t * (1 - D_TOLERANCE)) || !hasShortestPath(edgeID, pathT, 1 + CRITICAL_T_TOLERANCE)) {
+                return Math.min(pathT, t);
+            }
+            t = pathT;
+        }
+    }
 
-        double pathWeight = 0;
+    /**
+     * @param edgeID
+     * @return t at which the path found by the last search between the end points of the edge has weight 1,
+     * infinity if an edge of the path is not shorter than the edge after rounding, as the weight stays above 1
+     */
+    private double getPathT(int edgeID) {
+        int pathLength = 0;
+        //the path is followed from the meeting vertex back to the end point each side started from
+        for (Frontier frontier : new Frontier[]{pathSearch.forward, pathSearch.backward}) {
+            for (int vertexID = pathSearch.meetingVertexID; frontier.predecessorEdgeEnds[vertexID] != -1; ) {
+                int edgeEnd = frontier.predecessorEdgeEnds[vertexID];
+                if (pathLength == pathLogRatios.length) {
+                    pathLogRatios = Arrays.copyOf(pathLogRatios, pathLength * 2);
+                }
+                //logarithm of the ratio, not the difference of logarithms, which is 0 for nearly equal lengths
+                double logRatio = -Math.log(lengths[edgeEnd >> 1] / lengths[edgeID]);
+                if (!(logRatio > 0)) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                pathLogRatios[pathLength++] = logRatio;
+                vertexID = edgeVertexIDs[edgeEnd];
+            }
+        }
+        return solveForExponent(pathLogRatios, pathLength, D_TOLERANCE, MAX_D_ITERATIONS);
+    }
 
-        for (Line edge : tempPath) {
-            pathWeight += Math.pow(edge.getLength()/minLengthLine.getLength(), t);
+    private ArrayList<Line> getShortestPathGraphEdgesFromT_Spectrum(double t) {
+        //edges with a critical t well below t are skipped and the ones well above it are kept,
+        //edges with a critical t at about t are checked with a search on the same weights a full build uses
+        int first = getFirstEdgeIndex(t * (1 - CRITICAL_T_TOLERANCE)),
+                last = getFirstEdgeIndex(t * (1 + CRITICAL_T_TOLERANCE));
+        ArrayList<Line> shortestPathGraphEdges = new ArrayList<>(sortedCriticalTs.length - first);
+        for (int i = first; i < last; i++) {
+            int edgeID = sortedCriticalT_EdgeIDs[i];
+            if (!pathSearch.hasShortestPath(edgeVertexIDs[2 * edgeID], edgeVertexIDs[2 * edgeID + 1],
+                    Math.pow(sortedDelaunayEdges.get(edgeID).getLength()/minLengthLine.getLength(), t),
+                    numOfShorterEdges[edgeID],
+                    otherEdgeID -> Math.pow(sortedDelaunayEdges.get(otherEdgeID).getLength()/minLengthLine.getLength(), t))) {
+                shortestPathGraphEdges.add(sortedDelaunayEdges.get(edgeID));
+            }
+        }
+        for (int i = last; i < sortedCriticalTs.length; i++) {
+            shortestPathGraphEdges.add(sortedDelaunayEdges.get(sortedCriticalT_EdgeIDs[i]));
+        }
+        return shortestPathGraphEdges;
+    }
+
+    /**
+     * Binary search on the sorted critical t values
+     * @param t
+     * @return index of the first edge in the sorted order with a critical t above t
+     */
+    private int getFirstEdgeIndex(double t) {
+        int low = 0, high = sortedCriticalTs.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedCriticalTs[middle] <= t) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
         }
+        return low;
+    }
+
+    /**
+     * Search for the lightest path between the end points of an edge on the shorter edges, weighted relative to the edge
+     * @param edgeID
+     * @param t
+     * @param maxPathWeight
+     * @return true if there is a path with sum((length / L)^t) not above maxPathWeight
+     */
+    private boolean hasShortestPath(int edgeID, double t, double maxPathWeight) {
+        double length = lengths[edgeID];
+        return pathSearch.hasShortestPath(edgeVertexIDs[2 * edgeID], edgeVertexIDs[2 * edgeID + 1], maxPathWeight,
+                numOfShorterEdges[edgeID], otherEdgeID -> Math.exp(t * Math.log(lengths[otherEdgeID] / length)), true);
+    }
+
+    /**
+     * Bidirectional Dijkstra search between the end points of an edge on the graph being built
+     * One side grows from the source and the other from the target, the one with the smaller heap goes on.
+     * The search stops as soon as the sides meet on a path not heavier than maxPathWeight,
+     * or when the smallest distances of the two sides add up to more than that, as every path left is heavier.
+     */
+    private class PathSearch {
+        private final Frontier forward = new Frontier(firstEdgeEnds.length),
+                backward = new Frontier(firstEdgeEnds.length);
+        //vertex on the path found by the last search, reached from both sides
+        private int meetingVertexID;
+
+        boolean hasShortestPath(int source, int target, double maxPathWeight, int numOfUsableEdges,
+                                IntToDoubleFunction edgeWeights) {
+            return hasShortestPath(source, target, maxPathWeight, numOfUsableEdges, edgeWeights, false);
+        }
+
+        /**
+         * @param source
+         * @param target
+         * @param maxPathWeight
+         * @param numOfUsableEdges only edges with a lower index are followed
+         * @param edgeWeights weight of each edge by its index
+         * @param isLightestPathFound if true the search goes on after the sides meet,
+         *                            until the path through the meeting vertex is the lightest one
+         * @return true if there is a path from source to target not heavier than maxPathWeight
+         */
+        boolean hasShortestPath(int source, int target, double maxPathWeight, int numOfUsableEdges,
+                                IntToDoubleFunction edgeWeights, boolean isLightestPathFound) {
+            forward.clear();
+            backward.clear();
+            meetingVertexID = -1;
+            forward.setDistance(source, 0, -1);
+            backward.setDistance(target, 0, -1);
+            //if one of end points does not have connections, there cannot be a path
+            if (firstEdgeEnds[source] == -1 || firstEdgeEnds[target] == -1) {
+                return false;
+            }
 
-        return pathWeight;
+            //weight of the lightest path found so far
+            double lightestPathWeight = Double.POSITIVE_INFINITY;
+            while (forward.heapSize > 0 && backward.heapSize > 0 &&
+                    forward.getMinDistance() + backward.getMinDistance() <= maxPathWeight &&
+                    forward.getMinDistance() + backward.getMinDistance() < lightestPathWeight) {
+                Frontier frontier = forward.heapSize <= backward.heapSize ? forward : backward,
+                        otherFrontier = frontier == forward ? backward : forward;
+                int vertexID = frontier.removeMin();
+                double distance = frontier.distances[vertexID];
+
+                for (int edgeEnd = firstEdgeEnds[vertexID]; edgeEnd != -1; edgeEnd = nextEdgeEnds[edgeEnd]) {
+                    if (edgeEnd >> 1 >= numOfUsableEdges) {
+                        continue;
+                    }
+                    //other end of the edge
+                    int otherVertexID = edgeVertexIDs[edgeEnd ^ 1];
+                    double pathWeight = distance + edgeWeights.applyAsDouble(edgeEnd >> 1);
+                    if (pathWeight < frontier.distances[otherVertexID] && pathWeight <= maxPathWeight) {
+                        frontier.setDistance(otherVertexID, pathWeight, edgeEnd);
+                        //the other side has reached the vertex as well
+                        double meetingPathWeight = pathWeight + otherFrontier.distances[otherVertexID];
+                        if (meetingPathWeight <= maxPathWeight && meetingPathWeight < lightestPathWeight) {
+                            meetingVertexID = otherVertexID;
+                            if (!isLightestPathFound) {
+                                return true;
+                            }
+                            lightestPathWeight = meetingPathWeight;
+                        }
+                    }
+                }
+            }
+            return meetingVertexID != -1;
+        }
+
+        /**
+         * A path of the graph built after the last search, not heavier than maxPathWeight, through edges the search
+         * could not follow passes at least one of the vertices returned
+         * @return vertices reached by the last search from either side
+         */
+        int[] getReachedVertices() {
+            int[] reachedVertices = Arrays.copyOf(forward.reachedVertices,
+                    forward.numOfReachedVertices + backward.numOfReachedVertices);
+            System.arraycopy(backward.reachedVertices, 0, reachedVertices, forward.numOfReachedVertices,
+                    backward.numOfReachedVertices);
+            return reachedVertices;
+        }
+    }
+
+    /**
+     * Vertices reached by one side of a search, with a binary heap of the ones not settled yet on their distances
+     */
+    private static final class Frontier {
+        private final double[] distances;
+        private final int[] heapPositions;
+        //edge end through which each vertex was reached, -1 for the vertex the side started from
+        private final int[] predecessorEdgeEnds;
+        //most searches reach few vertices, these grow as needed
+        private int[] heap = new int[16], reachedVertices = new int[16];
+        private int heapSize, numOfReachedVertices;
+
+        Frontier(int numOfVertices) {
+            distances = new double[numOfVertices];
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+            heapPositions = new int[numOfVertices];
+            predecessorEdgeEnds = new int[numOfVertices];
+        }
+
+        //vertices of the last search are kept until the next one, so that they can be read after the search
+        void clear() {
+            for (int i = 0; i < numOfReachedVertices; i++) {
+                distances[reachedVertices[i]] = Double.POSITIVE_INFINITY;
+            }
+            numOfReachedVertices = 0;
+            heapSize = 0;
+        }
+
+        double getMinDistance() {
+            return distances[heap[0]];
+        }
+
+        //lowers the distance of the vertex, adding it to the heap if it is not reached yet
+        void setDistance(int vertexID, double distance, int predecessorEdgeEnd) {
+            int position;
+            if (distances[vertexID] == Double.POSITIVE_INFINITY) {
+                if (numOfReachedVertices == reachedVertices.length) {
+                    reachedVertices = Arrays.copyOf(reachedVertices, numOfReachedVertices * 2);
+                }
+                reachedVertices[numOfReachedVertices++] = vertexID;
+                if (heapSize == heap.length) {
+                    heap = Arrays.copyOf(heap, heapSize * 2);
+                }
+                position = heapSize++;
+            } else {
+                position = heapPositions[vertexID];
+            }
+            distances[vertexID] = distance;
+            predecessorEdgeEnds[vertexID] = predecessorEdgeEnd;
+
+            //sift up
+            while (position > 0) {
+                int parent = (position - 1) >> 1;
+                if (distances[heap[parent]] <= distance) {
+                    break;
+                }
+                heap[position] = heap[parent];
+                heapPositions[heap[position]] = position;
+                position = parent;
+            }
+            heap[position] = vertexID;
+            heapPositions[vertexID] = position;
+        }
+
+        int removeMin() {
+            int minVertexID = heap[0];
+            int vertexID = heap[--heapSize];
+            double distance = distances[vertexID];
+
+            //sift down
+            int position = 0;
+            while (2 * position + 1 < heapSize) {
+                int child = 2 * position + 1;
+                if (child + 1 < heapSize && distances[heap[child + 1]] < distances[heap[child]]) {
+                    ++child;
+                }
+                if (distance <= distances[heap[child]]) {
+                    break;
+                }
+                heap[position] = heap[child];
+                heapPositions[heap[position]] = position;
+                position = child;
+            }
+            heap[position] = vertexID;
+            heapPositions[vertexID] = position;
+            return minVertexID;
+        }
     }
 }
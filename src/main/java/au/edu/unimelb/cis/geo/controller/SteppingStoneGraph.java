@@ -21,186 +21,305 @@ import au.edu.unimelb.cis.geo.model.Triangle;
 import org.locationtech.jts.geom.Coordinate;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import static au.edu.unimelb.cis.geo.controller.DelaunayTriangulation.nextHalfEdge;
+import static au.edu.unimelb.cis.geo.controller.DelaunayTriangulation.previousHalfEdge;
 import static au.edu.unimelb.cis.geo.controller.utils.util.*;
 
 public class SteppingStoneGraph {
+    //edges fewer than this are walked in the calling thread
+    private static final int SEQUENTIAL_THRESHOLD = 1024;
     private HashMap<String, Line> edgeSet;
     private DelaunayTriangulation delaunayTriangulation;
-    private Coordinate Zmax, MaskingVertex;
-    private Line MaskingEdge, nextMaskingEdge;
-    private Triangle MaskingTriangle;
+    private HashMap<Integer, Triangle> delaunayTriangleSet;
+    //Delaunay edges and their d values, sorted on d value so that the edges of a stepping stone graph are a suffix
+    private Line[] DTEdges;
+    private double[] sortedD_Values;
+    private int[] sortedEdgeIDs;
 
     public SteppingStoneGraph(DelaunayTriangulation delaunayTriangulation) {
+        this(delaunayTriangulation, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param delaunayTriangulation
+     * @param pool d values of the Delaunay edges are computed in parallel on this pool
+     */
+    public SteppingStoneGraph(DelaunayTriangulation delaunayTriangulation, ForkJoinPool pool) {
         this.delaunayTriangulation = delaunayTriangulation;
         edgeSet = delaunayTriangulation.getEdgeSet();
-        CreateD_Spectrum();
+        delaunayTriangleSet = delaunayTriangulation.getTriangleSet();
+        CreateD_Spectrum(pool);
     }
 
-    private void CreateD_Spectrum() {
-        double[] minDs;
-        for (String delaunayEdgeKey :edgeSet.keySet()) {
-            Line DTEdge = edgeSet.get(delaunayEdgeKey);
-            minDs = new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+    private void CreateD_Spectrum(ForkJoinPool pool) {
+        //walks only read the triangulation, circumcircles are computed up front so that no walk writes to a triangle
+        for (Triangle triangle : delaunayTriangleSet.values()) {
+            triangle.SetCircumRadius();
+        }
+        DTEdges = edgeSet.values().toArray(new Line[0]);
+        pool.invoke(new CreateD_Values(DTEdges, 0, DTEdges.length));
+
+        sortedD_Values = new double[DTEdges.length];
+        sortedEdgeIDs = new int[DTEdges.length];
+        for (int i = 0; i < DTEdges.length; i++) {
+            sortedD_Values[i] = DTEdges[i].getD_value();
+            sortedEdgeIDs[i] = i;
+        }
+        sort(sortedEdgeIDs, sortedD_Values, 0, DTEdges.length - 1);
+    }
 
-            for (int i = 0; i < 2; i++) {
-                    walkRelativeNeighborhood(DTEdge, i, minDs);
-            }
-//            System.out.println("INFO: Edge" + DTEdge + "minDs = [" + minDs[0] + " ," + minDs[1] + "]");
+    /**
+     * Sets the d value of each edge in range [from, to), splitting the range between tasks
+     */
+    private class CreateD_Values extends RecursiveAction {
+        private final Line[] DTEdges;
+        private final int from, to;
+
+        CreateD_Values(Line[] DTEdges, int from, int to) {
+            this.DTEdges = DTEdges;
+            this.from = from;
+            this.to = to;
+        }
 
-            DTEdge.setD_value(Math.min(minDs[0], minDs[1]));
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int j = from; j < to; j++) {
+                    DTEdges[j].setD_value(new RelativeNeighborhoodWalk(DTEdges[j]).getD_value());
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CreateD_Values(DTEdges, from, middle), new CreateD_Values(DTEdges, middle, to));
         }
     }
 
-    private void walkRelativeNeighborhood(Line DE, int i, double[] minDs) {
-        MaskingEdge = DE;
-        int MaskingTriangleID = DE.getAdjacentNeighbours()[i];
-        HashMap<Integer, Triangle> delaunayTriangleSet = delaunayTriangulation.getTriangleSet();
-
-        if (MaskingTriangleID != -1) {
-            MaskingTriangle = delaunayTriangleSet.get(MaskingTriangleID);
-            Zmax = null;
-            MaskingVertex = getMaskingVertex(DE, i, minDs);
-            Zmax = getZmax(DE, i, minDs); //set edge of relative neighborhood on masking vertex side
-        } else {
-            return;
+    /**
+     * Walk through the triangles on both sides of a Delaunay edge, finding the smallest d
+     * for which a masking vertex is inside the relative neighborhood of the edge
+     * Each edge has its own walk, so that walks of different edges can run at the same time
+     */
+    private class RelativeNeighborhoodWalk {
+        private final Line DE;
+        private final double[] minDs = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        private Coordinate Zmax, MaskingVertex;
+        private Line MaskingEdge, nextMaskingEdge;
+        private Triangle MaskingTriangle;
+
+        RelativeNeighborhoodWalk(Line DE) {
+            this.DE = DE;
         }
 
-//        if (MaskingVertex.distance(DE.getCenterPoint()) > Zmax.distance(DE.getCenterPoint())){
-//            return;
-//        }
+        double getD_value() {
+            for (int i = 0; i < 2; i++) {
+                walkRelativeNeighborhood(i);
+            }
+//            System.out.println("INFO: Edge" + DE + "minDs = [" + minDs[0] + " ," + minDs[1] + "]");
+
+            return Math.min(minDs[0], minDs[1]);
+        }
 
-        int totTrianglesChecked = 0;
-        while (MaskingTriangleID != -1) {
-            ++totTrianglesChecked;
-            MaskingTriangle = delaunayTriangleSet.get(MaskingTriangleID);
-            MaskingVertex = getMaskingVertex(DE, i, minDs);
+        private void walkRelativeNeighborhood(int i) {
+            MaskingEdge = DE;
+            int MaskingTriangleID = DE.getAdjacentNeighbours()[i];
 
-            MaskingTriangle.SetCircumRadius();
-            if (isZmaxWithinCircumcircleOfMaskingTriangle()) {
-                break;
-            }
-            //else run rest of the code
-
-            double length0 = MaskingVertex.distance(DE.getEndPoints()[0]);
-            double length1 = MaskingVertex.distance(DE.getEndPoints()[1]);
-            double DELength = DE.getLength();
-            double minLength;
-
-            //Standardising the triangle by dividing edge lengths with minLength
-            minLength = Math.min(DELength, Math.min(length0, length1));
-
-            DELength = DELength / minLength;
-            length0 = length0 / minLength;
-            length1 = length1 / minLength;
-
-            if((minDs[i] == Double.POSITIVE_INFINITY && length0 < DELength && length1 < DELength) ||
-                    (minDs[i] != Double.POSITIVE_INFINITY &&
-                            Math.pow(length0, minDs[i]) + Math.pow(length1, minDs[i])
-                                    <= Math.pow(DELength, minDs[i]))) {
-                double newD = solveForDSecant(DELength, length0, length1);
-                if (newD < minDs[i]) {
-                    minDs[i] = newD;
-                    Zmax = getZmax(DE, i, minDs);
-                }
+            if (MaskingTriangleID != -1) {
+                MaskingTriangle = delaunayTriangleSet.get(MaskingTriangleID);
+                Zmax = null;
+                MaskingVertex = getMaskingVertex(i);
+                Zmax = getZmax(i); //set edge of relative neighborhood on masking vertex side
+            } else {
+                return;
             }
 
-            if (nextMaskingEdge == null) {
-                break;
-            }
-            //get new MaskingEdge of the MaskingTriangle
-            MaskingEdge = nextMaskingEdge;
+    //        if (MaskingVertex.distance(DE.getCenterPoint()) > Zmax.distance(DE.getCenterPoint())){
+    //            return;
+    //        }
 
-            //get new MaskingTriangleID from new MaskingEdge
-            if (MaskingEdge.getAdjacentNeighbours()[1] == MaskingTriangleID) {
-                MaskingTriangleID = MaskingEdge.getAdjacentNeighbours()[0];
-            } else {
-                MaskingTriangleID = MaskingEdge.getAdjacentNeighbours()[1];
+            int totTrianglesChecked = 0;
+            while (MaskingTriangleID != -1) {
+                ++totTrianglesChecked;
+                MaskingTriangle = delaunayTriangleSet.get(MaskingTriangleID);
+                MaskingVertex = getMaskingVertex(i);
+
+                if (isZmaxWithinCircumcircleOfMaskingTriangle()) {
+                    break;
+                }
+                //else run rest of the code
+
+                double length0 = MaskingVertex.distance(DE.getEndPoints()[0]);
+                double length1 = MaskingVertex.distance(DE.getEndPoints()[1]);
+                double DELength = DE.getLength();
+                double minLength;
+
+                //Standardising the triangle by dividing edge lengths with minLength
+                minLength = Math.min(DELength, Math.min(length0, length1));
+
+                DELength = DELength / minLength;
+                length0 = length0 / minLength;
+                length1 = length1 / minLength;
+
+                if((minDs[i] == Double.POSITIVE_INFINITY && length0 < DELength && length1 < DELength) ||
+                        (minDs[i] != Double.POSITIVE_INFINITY &&
+                                Math.pow(length0, minDs[i]) + Math.pow(length1, minDs[i])
+                                        <= Math.pow(DELength, minDs[i]))) {
+                    double newD = solveForD(DELength, length0, length1);
+                    if (newD < minDs[i]) {
+                        minDs[i] = newD;
+                        Zmax = getZmax(i);
+                    }
+                }
+
+                if (nextMaskingEdge == null) {
+                    break;
+                }
+                //get new MaskingEdge of the MaskingTriangle
+                MaskingEdge = nextMaskingEdge;
+
+                //get new MaskingTriangleID from new MaskingEdge
+                if (MaskingEdge.getAdjacentNeighbours()[1] == MaskingTriangleID) {
+                    MaskingTriangleID = MaskingEdge.getAdjacentNeighbours()[0];
+                } else {
+                    MaskingTriangleID = MaskingEdge.getAdjacentNeighbours()[1];
+                }
             }
         }
-    }
 
 
-    private boolean isZmaxWithinCircumcircleOfMaskingTriangle() {
-        return MaskingTriangle.getCircumcenter().distance(Zmax) <= MaskingTriangle.getCircumRadius();
-    }
-
-    private Coordinate getZmax(Line DE, int i, double[] minDs) {
-        double Ymax = (DE.getLength()/2)*(Math.sqrt(3));
-        if (Ymax < Double.POSITIVE_INFINITY) {
-            Ymax = (DE.getLength()/2)*(Math.sqrt(Math.pow(4, 1-1/minDs[i])-1));
+        private boolean isZmaxWithinCircumcircleOfMaskingTriangle() {
+            return MaskingTriangle.isInsideCircumcircle(Zmax);
         }
 
-        double m = DE.getA() != 0 ? DE.getB()/DE.getA() : DE.getB();
-        double c = DE.getA() != 0 ? DE.getCPerpendicular()/DE.getA() : DE.getCPerpendicular();
+        private Coordinate getZmax(int i) {
+            double Ymax = (DE.getLength()/2)*(Math.sqrt(3));
+            if (Ymax < Double.POSITIVE_INFINITY) {
+                Ymax = (DE.getLength()/2)*(Math.sqrt(Math.pow(4, 1-1/minDs[i])-1));
+            }
+
+            double m = DE.getA() != 0 ? DE.getB()/DE.getA() : DE.getB();
+            double c = DE.getA() != 0 ? DE.getCPerpendicular()/DE.getA() : DE.getCPerpendicular();
 
-        double diff = Ymax/Math.sqrt(1 + Math.pow(m, 2));
-        Coordinate center = DE.getCenterPoint();
-        double x = DE.getA() != 0 ? center.getX() + diff : center.getX();
-        double y = DE.getA() != 0 ? m*x + c : center.getY() + Ymax;
+            double diff = Ymax/Math.sqrt(1 + Math.pow(m, 2));
+            Coordinate center = DE.getCenterPoint();
+            double x = DE.getA() != 0 ? center.getX() + diff : center.getX();
+            double y = DE.getA() != 0 ? m*x + c : center.getY() + Ymax;
 
-        Coordinate z = new Coordinate(x, y);
+            Coordinate z = new Coordinate(x, y);
 
-        if (isPointClockwiseFromLine(z, DE) != isPointClockwiseFromLine(MaskingVertex, DE)) {
-            x = DE.getA() != 0 ? center.getX() - diff : center.getX();
-            y = DE.getA() != 0 ? m*x + c : center.getY() - Ymax;
+            if (isPointClockwiseFromLine(z, DE) != isPointClockwiseFromLine(MaskingVertex, DE)) {
+                x = DE.getA() != 0 ? center.getX() - diff : center.getX();
+                y = DE.getA() != 0 ? m*x + c : center.getY() - Ymax;
 
-            z = new Coordinate(x, y);
+                z = new Coordinate(x, y);
+            }
+            return z;
         }
-        return z;
-    }
 
-    private Coordinate getMaskingVertex(Line DE, int i, double[] minDs) {
-        Coordinate vertex = null,
-                e0 = MaskingEdge.getEndPoints()[0],
-                e1 = MaskingEdge.getEndPoints()[1];
+        private Coordinate getMaskingVertex(int i) {
+            Coordinate vertex = null,
+                    e0 = MaskingEdge.getEndPoints()[0],
+                    e1 = MaskingEdge.getEndPoints()[1];
 
-        for (Coordinate vertex1 : MaskingTriangle.getVertices()) {
-            if (vertex1 != e0 &&
-                    vertex1 != e1)
-                vertex = vertex1;
-        }
+            for (Coordinate vertex1 : MaskingTriangle.getVertices()) {
+                if (vertex1 != e0 &&
+                        vertex1 != e1)
+                    vertex = vertex1;
+            }
 
-        if (Zmax == null) {
-            MaskingVertex = vertex;
-            Zmax = getZmax(DE, i, minDs);
-        }
+            if (Zmax == null) {
+                MaskingVertex = vertex;
+                Zmax = getZmax(i);
+            }
+
+            boolean e0Intersect = DoesSegmentsIntersect(vertex, e0, DE.getCenterPoint(), Zmax),
+                    e1Intersect = DoesSegmentsIntersect(vertex, e1, DE.getCenterPoint(), Zmax);
+
+    //        if (e0Intersect && e1Intersect) {
+    //            System.out.println("INFO : Both edges of masking triangle intersect with Z max");
+    //        }
+
+            if (e0Intersect || e1Intersect) {
+                //other edges of the masking triangle are reached from the half-edge of the masking edge in it,
+                //triangle t is made of half-edges 3t, 3t + 1 and 3t + 2
+                int halfEdge = MaskingEdge.getEdgeID();
+                if (halfEdge / 3 != MaskingTriangle.getIndex()) {
+                    halfEdge = delaunayTriangulation.getTwin(halfEdge);
+                }
+                Line nextEdge = delaunayTriangulation.getLine(nextHalfEdge(halfEdge)),
+                        previousEdge = delaunayTriangulation.getLine(previousHalfEdge(halfEdge));
+                boolean isNextEdgeOnE0 = nextEdge.getEndPoints()[0] == e0 || nextEdge.getEndPoints()[1] == e0;
+                if (e0Intersect)
+                    nextMaskingEdge = isNextEdgeOnE0 ? nextEdge : previousEdge;
+                if (e1Intersect)
+                    nextMaskingEdge = isNextEdgeOnE0 ? previousEdge : nextEdge;
+            } else {
+                nextMaskingEdge = null;
+            }
 
-        boolean e0Intersect = DoesSegmentsIntersect(vertex, e0, DE.getCenterPoint(), Zmax),
-                e1Intersect = DoesSegmentsIntersect(vertex, e1, DE.getCenterPoint(), Zmax);
+            if (MaskingEdge == nextMaskingEdge) {
+                System.out.println("ERROR : next masking edge set incorrectly!!!!!!!!!!!!!!!");
+            }
 
-//        if (e0Intersect && e1Intersect) {
-//            System.out.println("INFO : Both edges of masking triangle intersect with Z max");
-//        }
+            return vertex;
+        }
+    }
 
-        if (e0Intersect)
-            nextMaskingEdge = delaunayTriangulation.getFromLineSet(vertex, e0);
-        if (e1Intersect)
-            nextMaskingEdge = delaunayTriangulation.getFromLineSet(vertex, e1);
-        if (!e0Intersect && !e1Intersect)
-            nextMaskingEdge = null;
+    /**
+     * Edges of the stepping stone graph are the Delaunay edges with a d value above d,
+     * with d = infinity only the edges with an infinite d value
+     * @param d
+     * @return
+     */
+    public ArrayList<Line> getSteppingStoneGraphEdges(double d) {
+        int first = getFirstEdgeIndex(d);
+        ArrayList<Line> steppingStoneGraphEdges = new ArrayList<>(DTEdges.length - first);
+        for (int i = first; i < DTEdges.length; i++) {
+            steppingStoneGraphEdges.add(DTEdges[sortedEdgeIDs[i]]);
+        }
+        return steppingStoneGraphEdges;
+    }
 
-        if (MaskingEdge == nextMaskingEdge) {
-            System.out.println("ERROR : next masking edge set incorrectly!!!!!!!!!!!!!!!");
+    /**
+     * @param d
+     * @return edges of the stepping stone graph as a set of edge IDs, valid only until the triangulation changes
+     */
+    public ProximityGraphResult getSteppingStoneGraphResult(double d) {
+        BitSet edgeIDs = new BitSet(delaunayTriangulation.getNumOfHalfEdgeIndexes());
+        for (int i = getFirstEdgeIndex(d); i < DTEdges.length; i++) {
+            edgeIDs.set(DTEdges[sortedEdgeIDs[i]].getEdgeID());
         }
+        return new ProximityGraphResult(delaunayTriangulation, edgeIDs);
+    }
 
-        return vertex;
+    /**
+     * @param d
+     * @return number of edges in the stepping stone graph, without creating the edge list
+     */
+    public int getNumOfSteppingStoneGraphEdges(double d) {
+        return DTEdges.length - getFirstEdgeIndex(d);
     }
 
-    public ArrayList<Line> getSteppingStoneGraphEdges(double d) {
-        ArrayList<Line> steppingStoneGraphEdges = new ArrayList<>(edgeSet.size());
-        for (String delaunayEdgeKey :edgeSet.keySet()) {
-            Line DTEdge = edgeSet.get(delaunayEdgeKey);
-            int skipped = 0, added = 0;
-            if ((d < Double.POSITIVE_INFINITY && DTEdge.getD_value() <= d)
-                    || (d == Double.POSITIVE_INFINITY && DTEdge.getD_value() < d)) {
-                skipped++;
+    /**
+     * Binary search on the sorted d values
+     * @param d
+     * @return index of the first edge in the sorted order that is in the stepping stone graph
+     */
+    private int getFirstEdgeIndex(double d) {
+        int low = 0, high = sortedD_Values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if ((d < Double.POSITIVE_INFINITY && sortedD_Values[middle] <= d)
+                    || (d == Double.POSITIVE_INFINITY && sortedD_Values[middle] < d)) {
+                low = middle + 1;
             } else {
-                steppingStoneGraphEdges.add(DTEdge);
-                added++;
+                high = middle;
             }
         }
-        return steppingStoneGraphEdges;
+        return low;
     }
 }
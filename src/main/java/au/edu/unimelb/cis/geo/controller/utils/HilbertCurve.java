@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020, Sameera Kannangara (dlskannangara@gmail.com) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.edu.unimelb.cis.geo.controller.utils;
+
+import org.locationtech.jts.geom.Coordinate;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Orders points along a Hilbert curve laid over their bounding box,
+ * so that points close to each other in the list are close to each other in space
+ */
+public class HilbertCurve {
+    //the bounding box is split into 2^ORDER x 2^ORDER cells, index of a cell fits in 2 * ORDER bits
+    private static final int ORDER = 15;
+    private static final int SIDE = 1 << ORDER;
+
+    /**
+     * Sorts given points in the order they are visited by the Hilbert curve
+     * @param points
+     */
+    public static void sort(List<Coordinate> points) {
+        int numOfPoints = points.size();
+        if (numOfPoints < 2) {
+            return;
+        }
+
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE,
+                maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (Coordinate point : points) {
+            minX = Math.min(minX, point.getX());
+            minY = Math.min(minY, point.getY());
+            maxX = Math.max(maxX, point.getX());
+            maxY = Math.max(maxY, point.getY());
+        }
+        //same scale on both axes keeps the cells square
+        double scale = (SIDE - 1) / Math.max(Math.max(maxX - minX, maxY - minY), Double.MIN_NORMAL);
+
+        //curve index in the upper bits and position in the list in the lower bits, sorted as primitives
+        long[] keys = new long[numOfPoints];
+        for (int i = 0; i < numOfPoints; i++) {
+            Coordinate point = points.get(i);
+            int x = (int) ((point.getX() - minX) * scale),
+                    y = (int) ((point.getY() - minY) * scale);
+            keys[i] = (getIndex(x, y) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        Coordinate[] sortedPoints = new Coordinate[numOfPoints];
+        for (int i = 0; i < numOfPoints; i++) {
+            sortedPoints[i] = points.get((int) keys[i]);
+        }
+        for (int i = 0; i < numOfPoints; i++) {
+            points.set(i, sortedPoints[i]);
+        }
+    }
+
+    /**
+     * Distance along the Hilbert curve to the cell at x, y
+     * [https://en.wikipedia.org/wiki/Hilbert_curve#Applications_and_mapping_algorithms]
+     * @param x in range [0, 2^ORDER)
+     * @param y in range [0, 2^ORDER)
+     * @return
+     */
+    static long getIndex(int x, int y) {
+        long index = 0;
+        for (int s = SIDE >> 1; s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0,
+                    ry = (y & s) > 0 ? 1 : 0;
+            index += (long) s * s * ((3 * rx) ^ ry);
+            //rotate the quadrant so that the curve inside it starts and ends at the right corners
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = SIDE - 1 - x;
+                    y = SIDE - 1 - y;
+                }
+                int temp = x;
+                x = y;
+                y = temp;
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020, Sameera Kannangara (dlskannangara@gmail.com) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.edu.unimelb.cis.geo.controller.utils;
+
+import java.math.BigDecimal;
+
+/**
+ * Orientation and in-circle predicates with a floating-point filter.
+ * The determinant is first evaluated in double precision and its sign is returned if
+ * it is larger than the error bound of that evaluation (Shewchuk, "Adaptive Precision Floating-Point
+ * Arithmetic and Fast Robust Geometric Predicates"). Otherwise the determinant is evaluated exactly.
+ * Only the sign of the returned values is exact.
+ */
+public class RobustPredicates {
+    //half of the machine epsilon of double, 2^-53
+    private static final double EPSILON = 1.1102230246251565E-16;
+    private static final double CCW_ERROR_BOUND = (3.0 + 16.0 * EPSILON) * EPSILON;
+    private static final double IN_CIRCLE_ERROR_BOUND = (10.0 + 96.0 * EPSILON) * EPSILON;
+
+    /**
+     * @return positive if a, b, c are in counter clockwise order, negative if clockwise
+     * and zero if they are collinear
+     */
+    public static double orient2d(double ax, double ay, double bx, double by, double cx, double cy) {
+        double detLeft = (ax - cx) * (by - cy);
+        double detRight = (ay - cy) * (bx - cx);
+        double det = detLeft - detRight;
+        double detSum;
+
+        if (detLeft > 0) {
+            if (detRight <= 0) {
+                return det;
+            }
+            detSum = detLeft + detRight;
+        } else if (detLeft < 0) {
+            if (detRight >= 0) {
+                return det;
+            }
+            detSum = -detLeft - detRight;
+        } else {
+            return det;
+        }
+
+        double errorBound = CCW_ERROR_BOUND * detSum;
+        if (det >= errorBound || -det >= errorBound) {
+            return det;
+        }
+        return orient2dExact(ax, ay, bx, by, cx, cy);
+    }
+
+    private static double orient2dExact(double ax, double ay, double bx, double by, double cx, double cy) {
+        BigDecimal acx = exact(ax).subtract(exact(cx)),
+                bcy = exact(by).subtract(exact(cy)),
+                acy = exact(ay).subtract(exact(cy)),
+                bcx = exact(bx).subtract(exact(cx));
+        return acx.multiply(bcy).subtract(acy.multiply(bcx)).signum();
+    }
+
+    /**
+     * @return positive if d lies inside the circle through a, b, c when a, b, c are in counter clockwise order,
+     * negative if d lies outside and zero if the four points are cocircular.
+     * The sign is reversed when a, b, c are in clockwise order
+     */
+    public static double inCircle(double ax, double ay, double bx, double by,
+                                  double cx, double cy, double dx, double dy) {
+        double adx = ax - dx, ady = ay - dy,
+                bdx = bx - dx, bdy = by - dy,
+                cdx = cx - dx, cdy = cy - dy;
+
+        double bdxcdy = bdx * cdy, cdxbdy = cdx * bdy;
+        double aLift = adx * adx + ady * ady;
+
+        double cdxady = cdx * ady, adxcdy = adx * cdy;
+        double bLift = bdx * bdx + bdy * bdy;
+
+        double adxbdy = adx * bdy, bdxady = bdx * ady;
+        double cLift = cdx * cdx + cdy * cdy;
+
+        double det = aLift * (bdxcdy - cdxbdy)
+                + bLift * (cdxady - adxcdy)
+                + cLift * (adxbdy - bdxady);
+
+        double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * aLift
+                + (Math.abs(cdxady) + Math.abs(adxcdy)) * bLift
+                + (Math.abs(adxbdy) + Math.abs(bdxady)) * cLift;
+        double errorBound = IN_CIRCLE_ERROR_BOUND * permanent;
+        if (det > errorBound || -det > errorBound) {
+            return det;
+        }
+        return inCircleExact(ax, ay, bx, by, cx, cy, dx, dy);
+    }
+
+    private static double inCircleExact(double ax, double ay, double bx, double by,
+                                        double cx, double cy, double dx, double dy) {
+        BigDecimal adx = exact(ax).subtract(exact(dx)), ady = exact(ay).subtract(exact(dy)),
+                bdx = exact(bx).subtract(exact(dx)), bdy = exact(by).subtract(exact(dy)),
+                cdx = exact(cx).subtract(exact(dx)), cdy = exact(cy).subtract(exact(dy));
+
+        BigDecimal aLift = adx.multiply(adx).add(ady.multiply(ady)),
+                bLift = bdx.multiply(bdx).add(bdy.multiply(bdy)),
+                cLift = cdx.multiply(cdx).add(cdy.multiply(cdy));
+
+        BigDecimal det = aLift.multiply(bdx.multiply(cdy).subtract(cdx.multiply(bdy)))
+                .add(bLift.multiply(cdx.multiply(ady).subtract(adx.multiply(cdy))))
+                .add(cLift.multiply(adx.multiply(bdy).subtract(bdx.multiply(ady))));
+        return det.signum();
+    }
+
+    //BigDecimal(double) holds the exact binary value of the double
+    private static BigDecimal exact(double value) {
+        return new BigDecimal(value);
+    }
+}
@@ -20,16 +20,13 @@ import au.edu.unimelb.cis.geo.model.Line;
 import au.edu.unimelb.cis.geo.model.Triangle;
 import org.locationtech.jts.geom.Coordinate;
 
+import static au.edu.unimelb.cis.geo.controller.utils.RobustPredicates.orient2d;
+
 public class util {
 
-    //line direction is 0 -> 1
+    //line direction is 0 -> 1, a point on the line is considered clockwise
     public static boolean isPointClockwiseFromLine(Coordinate point, Line line) {
-        double crossProduct = (((point.getX() - line.getEndPoints()[0].getX())
-                * (line.getEndPoints()[1].getY() - line.getEndPoints()[0].getY()))
-                - (line.getEndPoints()[1].getX() - line.getEndPoints()[0].getX())
-                * (point.getY() - line.getEndPoints()[0].getY()));
-
-        return (crossProduct >= 0);
+        return direction(line.getEndPoints()[0], line.getEndPoints()[1], point) >= 0;
     }
 
     public static boolean DoesSegmentsIntersect(Coordinate p1, Coordinate p2,
@@ -53,11 +50,9 @@ public class util {
         return false;
     }
 
+    //cross product of (k - line0) and (line1 - line0), only the sign is exact
     private static double direction(Coordinate line0, Coordinate line1, Coordinate k) {
-        return (((k.getX() - line0.getX())
-                * (line1.getY() - line0.getY()))
-                - (line1.getX() - line0.getX())
-                * (k.getY() - line0.getY()));
+        return -orient2d(line0.getX(), line0.getY(), line1.getX(), line1.getY(), k.getX(), k.getY());
     }
 
     private static boolean onSegment(Coordinate line0, Coordinate line1, Coordinate k) {
@@ -72,42 +67,164 @@ public class util {
         return false;
     }
 
-    public static double solveForDSecant(double c, double a, double b) {
-        //throw exception if triangle inequality is not satisfied
-//        System.out.println(c + ", " + a + ", " + b);
+    //relative tolerance on d and iteration cap used by solveForD unless given
+    public static final double D_TOLERANCE = 1e-12;
+    public static final int MAX_D_ITERATIONS = 64;
+
+    public static double solveForD(double c, double a, double b) {
+        return solveForD(c, a, b, D_TOLERANCE, MAX_D_ITERATIONS);
+    }
+
+    /**
+     * Solves c^d = a^d + b^d for d, for a triangle with sides a and b shorter than c
+     * Dividing by c^d gives exp(-pd) + exp(-qd) = 1 with p = ln(c/a) and q = ln(c/b), the logarithm of
+     * the left side is convex and decreasing in d. Its root is bracketed by [ln2 / max(p, q), ln2 / min(p, q)]
+     * and found with Halley steps from ln2 / mean(p, q), falling back to bisection when a step leaves the bracket.
+     * Working on log ratios keeps nearly equilateral triangles, which have very large d, from overflowing.
+     * @param c
+     * @param a
+     * @param b
+     * @param tolerance relative tolerance on d
+     * @param maxIterations
+     * @return d, infinity if a or b is not shorter than c
+     */
+    public static double solveForD(double c, double a, double b, double tolerance, int maxIterations) {
+        double p = Math.log(c / a), q = Math.log(c / b);
+        if (!(p > 0 && q > 0)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double minP = Math.min(p, q), diff = Math.max(p, q) - minP;
+        double low = Math.log(2) / (minP + diff), high = Math.log(2) / minP;
+
+        double d = Math.log(2) / (minP + diff / 2);
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            //g = ln(exp(-pd) + exp(-qd)) with the smaller exponent factored out, and its derivatives
+            double ratio = Math.exp(-diff * d);
+            double weight = ratio / (1 + ratio);
+            double g = -minP * d + Math.log1p(ratio);
+            double slope = -minP - diff * weight;
+            double curvature = diff * diff * weight * (1 - weight);
+            if (g == 0) {
+                return d;
+            } else if (g > 0) {
+                low = d;
+            } else {
+                high = d;
+            }
+
+            double newD = d - 2 * g * slope / (2 * slope * slope - g * curvature);
+            if (Math.abs(newD - d) <= tolerance * d) {
+                return newD;
+            }
+            if (!(newD > low && newD < high)) {
+                newD = (low + high) / 2;
+            }
+            d = newD;
+        }
+        return d;
+    }
 
-        double D = 2, tempD = 1, previousHighD = 10;
-        double fx = Math.pow(c, D) - Math.pow(a, D) - Math.pow(b, D), oldfx;
+    /**
+     * Solves c^d = a^d + b^d for each triple at the same position of the arrays
+     * @param c
+     * @param a
+     * @param b
+     * @param d receives the solutions
+     * @param tolerance relative tolerance on d
+     * @param maxIterations
+     */
+    public static void solveForD(double[] c, double[] a, double[] b, double[] d, double tolerance,
+                                 int maxIterations) {
+        for (int i = 0; i < d.length; i++) {
+            d[i] = solveForD(c[i], a[i], b[i], tolerance, maxIterations);
+        }
+    }
 
-        if (fx == 0) {
-            return D;
+    /**
+     * Solves sum(exp(-l_i * x)) = 1 for x, the exponent at which a path of edges with lengths L * exp(-l_i)
+     * is as heavy as an edge of length L, solveForD is the case of two edges
+     * The logarithm of the left side is convex and decreasing, Newton steps from the lower bound
+     * ln(n) / max(l_i) approach the root from below, the upper bound ln(n) / min(l_i) guards against rounding
+     * @param logRatios l_i values, all above 0
+     * @param length number of values used from the start of logRatios, at least 2
+     * @param tolerance relative tolerance on x
+     * @param maxIterations
+     * @return
+     */
+    public static double solveForExponent(double[] logRatios, int length, double tolerance, int maxIterations) {
+        double minLogRatio = Double.POSITIVE_INFINITY, maxLogRatio = 0;
+        for (int i = 0; i < length; i++) {
+            minLogRatio = Math.min(minLogRatio, logRatios[i]);
+            maxLogRatio = Math.max(maxLogRatio, logRatios[i]);
         }
-        //try finding upper bound for D-value
-        while (fx < 0) {
-            D *= 2;
-            if (Math.pow(c, D) == Double.POSITIVE_INFINITY)
-                return D;
-            fx = Math.pow(c, D) - Math.pow(a, D) - Math.pow(b, D);
+        double low = Math.log(length) / maxLogRatio, high = Math.log(length) / minLogRatio;
+
+        double x = low;
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            //logarithm of the sum with the largest term factored out, and its derivative
+            double sum = 0, weightedSum = 0;
+            for (int i = 0; i < length; i++) {
+                double term = Math.exp(-(logRatios[i] - minLogRatio) * x);
+                sum += term;
+                weightedSum += (logRatios[i] - minLogRatio) * term;
+            }
+            double g = -minLogRatio * x + Math.log(sum);
+            double slope = -minLogRatio - weightedSum / sum;
+            if (g == 0) {
+                return x;
+            } else if (g > 0) {
+                low = x;
+            } else {
+                high = x;
+            }
+
+            double newX = x - g / slope;
+            if (Math.abs(newX - x) <= tolerance * x) {
+                return newX;
+            }
+            if (!(newX > low && newX < high)) {
+                newX = (low + high) / 2;
+            }
+            x = newX;
         }
+        return x;
+    }
 
-        previousHighD = D + 1;
-        oldfx = Math.pow(c, previousHighD) - Math.pow(a, previousHighD) - Math.pow(b, previousHighD);
+    private static final double LN_2 = Math.log(2);
 
-        int iterations = 0;
-        while (Math.abs(previousHighD - D) > 0.00001) { //setting sensitivity
-            fx = Math.pow(c, D) - Math.pow(a, D) - Math.pow(b, D);
-//            System.out.println("fx = " + fx);
+    /**
+     * Gabriel test of C against the edge AB. AB^2 = AC^2 + BC^2 - 2 (A - C).(B - C),
+     * so AB^2 < AC^2 + BC^2 is the sign of the dot product and needs no lengths
+     * @return true if C is outside the circle of which AB is the diameter
+     */
+    public static boolean isOutsideDiametricCircle(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (ax - cx) * (bx - cx) + (ay - cy) * (by - cy) > 0;
+    }
 
-            tempD = (D*oldfx - previousHighD*fx) / (oldfx - fx);
-            previousHighD = D;
-            D = tempD;
-            oldfx = fx;
-            ++iterations;
+    /**
+     * Diversion test of C against the edge AB, AB^d >= AC^d + BC^d divided by AB^d
+     * is exp(d ln(AC/AB)) + exp(d ln(BC/AB)) <= 1 on the natural logarithms of the lengths
+     * @param logAB
+     * @param logAC
+     * @param logBC
+     * @param d
+     * @return true if C is inside the diversion neighbourhood of AB
+     */
+    public static boolean isInsideDiversionNeighbourhood(double logAB, double logAC, double logBC, double d) {
+        //only possible if AB is the longest side
+        if (logAC > logAB || logBC > logAB) {
+            return false;
+        }
+        if (d == Double.POSITIVE_INFINITY) {
+            return true;
+        }
+        double logRatioAC = d * (logAC - logAB),
+                logRatioBC = d * (logBC - logAB);
+        //both terms are at most 1/2
+        if (logRatioAC <= -LN_2 && logRatioBC <= -LN_2) {
+            return true;
         }
-//        System.out.println("# of Secant iterations = " + iterations);
-//        fx = Math.pow(c, D) - Math.pow(a, D) - Math.pow(b, D);
-//        System.out.println("fx = " + fx);
-        return D;
+        return Math.exp(logRatioAC) + Math.exp(logRatioBC) <= 1;
     }
 
     public static Coordinate getPointNotOnEdge(Line edge, Triangle triangle) {
@@ -120,4 +237,51 @@ public class util {
         }
         return null;
     }
+
+    /**
+     * Sorts the IDs in range [left, right] on their keys, keys are moved along with the IDs
+     * @param ids
+     * @param keys
+     * @param left
+     * @param right
+     */
+    public static void sort(int[] ids, double[] keys, int left, int right) {
+        while (right - left > 16) {
+            double pivot = keys[(left + right) >>> 1];
+            int i = left, j = right;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    ++i;
+                }
+                while (keys[j] > pivot) {
+                    --j;
+                }
+                if (i <= j) {
+                    swap(ids, keys, i++, j--);
+                }
+            }
+            //recursion on the smaller part keeps the stack depth logarithmic
+            if (j - left < right - i) {
+                sort(ids, keys, left, j);
+                left = i;
+            } else {
+                sort(ids, keys, i, right);
+                right = j;
+            }
+        }
+        for (int i = left + 1; i <= right; i++) {
+            for (int j = i; j > left && keys[j - 1] > keys[j]; j--) {
+                swap(ids, keys, j - 1, j);
+            }
+        }
+    }
+
+    private static void swap(int[] ids, double[] keys, int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+    }
 }
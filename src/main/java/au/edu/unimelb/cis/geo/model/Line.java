@@ -22,70 +22,65 @@ public class Line {
 
     private Coordinate[] endPoints = new Coordinate[2];
     private double length;
-    private double a, b, c, c1;
+    //natural logarithm of the length, NaN until requested
+    private double logLength = Double.NaN;
+    //mid points are created on first request, other attributes are computed from the end points when requested
     private Coordinate centerPoint;
     private Coordinate euclideanCenterPoint;
     private int[] neighbouringTriangleIDs = {-1, -1};
     private int numOfNeighbouringTriangles = 0;
-    private int flipCount;
     private double d_value;
+    //smaller half-edge of the edge in the triangulation that created the line, -1 if the line is not an edge
+    private int edgeID = -1;
 
     public Line(Coordinate point1, Coordinate point2){
         endPoints[0] = point1;
         endPoints[1] = point2;
-
-        Init(point1, point2);
+        length = point1.distance(point2);
     }
 
     public double getLength() {
         return length;
     }
 
+    public double getLogLength() {
+        if (Double.isNaN(logLength)) {
+            logLength = Math.log(length);
+        }
+        return logLength;
+    }
+
+    //line equation
+    //ax + by + c = 0
     public double getA() {
-        return a;
+        return endPoints[0].getY() - endPoints[1].getY();
     }
 
     public double getB() {
-        return b;
+        return endPoints[1].getX() - endPoints[0].getX();
     }
 
     public double getC() {
-        return c;
+        return -getB() * endPoints[0].getY() + -getA() * endPoints[0].getX();
     }
 
+    //perpendicular equation through the mid point
+    //bx - ay + c1 = 0
     public double getCPerpendicular() {
-        return c1;
-    }
-
-    private void Init(Coordinate point1, Coordinate point2) {
-        setCircularMidPoint();
-        //calculate length
-        double dx = point1.getX() - point2.getX();
-        double dy = point1.getY() - point2.getY();
-        length = point1.distance(point2);
-//                Math.sqrt(dx * dx + dy * dy);
-
-        double theta = Math.atan2(dx, dy);
-        double directionalTheta = theta;
-
-        if (theta < 0) {
-            theta = -1 * theta;
-            theta = Math.PI - theta;
-        }
-
-        //line equation
-        //ax + by + c = 0
-        a = point1.getY() - point2.getY();
-        b = point2.getX() - point1.getX();
-        c = -b * point1.getY() + -a * point1.getX();
-
         double x = (endPoints[0].getX() + endPoints[1].getX()) / 2,
                 y = (endPoints[0].getY() + endPoints[1].getY()) / 2;
-        c1 = a * y - b * x;
-        //perpendicular equation
-        //bx - ay + c1 = 0
+        return getA() * y - getB() * x;
+    }
 
-        euclideanCenterPoint = new Coordinate(x, y);
+    /**
+     * Mid point of the great circle arc between the end points, taken as longitude and latitude in degrees
+     * @return
+     */
+    public Coordinate getCircularMidPoint() {
+        if (centerPoint == null) {
+            setCircularMidPoint();
+        }
+        return centerPoint;
     }
 
     private void setCircularMidPoint(){
@@ -123,25 +118,6 @@ public class Line {
         return numOfNeighbouringTriangles;
     }
 
-    public boolean replaceAdjacentNeighbour(int oldVal, int newVal) {
-        if (neighbouringTriangleIDs[0] == oldVal) {
-            neighbouringTriangleIDs[0] = newVal;
-            return true;
-        } else if (neighbouringTriangleIDs[1] == oldVal) {
-            neighbouringTriangleIDs[1] = newVal;
-            return true;
-        }
-        return false;
-    }
-
-    public void setFlipCount(Line previousLine) {
-        this.flipCount = previousLine.getFlipCount() + 1;
-    }
-
-    public int getFlipCount() {
-        return flipCount;
-    }
-
     @Override
     public String toString() {
         return endPoints[0] + " -> " + endPoints[1];
@@ -155,7 +131,19 @@ public class Line {
         this.d_value = d_value;
     }
 
+    public int getEdgeID() {
+        return edgeID;
+    }
+
+    public void setEdgeID(int edgeID) {
+        this.edgeID = edgeID;
+    }
+
     public Coordinate getCenterPoint() {
+        if (euclideanCenterPoint == null) {
+            euclideanCenterPoint = new Coordinate((endPoints[0].getX() + endPoints[1].getX()) / 2,
+                    (endPoints[0].getY() + endPoints[1].getY()) / 2);
+        }
         return euclideanCenterPoint;
     }
 }
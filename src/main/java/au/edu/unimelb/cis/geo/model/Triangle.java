@@ -21,9 +21,12 @@ import org.locationtech.jts.geom.Coordinate;
 public class Triangle {
     private int index;
     private Coordinate[] vertices;//these should form a clockwise rotation
+    private int[] vertexIDs; //if set, IDs of vertices in the same order as vertices
     private Line[] edges; //if edges exist, contains 3 edges in order 0-1,1-2,2-0
+    //circumcircle is computed on first use and kept
+    private boolean isCircumcircleSet = false;
+    private double circumCenterX, circumCenterY, circumRadiusSquared;
     private Coordinate circumCenter;
-    private double circumRadius = Double.MAX_VALUE;
 
     private int numOfAdjacentTriangles = 0;
     private int[] adjacentTriangleIndexes = new int[3];
@@ -32,21 +35,45 @@ public class Triangle {
         this.vertices = vertices;
     }
 
+    public Triangle(Coordinate[] vertices, int[] vertexIDs) {
+        this.vertices = vertices;
+        this.vertexIDs = vertexIDs;
+    }
+
     public Coordinate[] getVertices() {
         return vertices;
     }
 
+    public int[] getVertexIDs() {
+        return vertexIDs;
+    }
+
     public void addNeighbour(int neighbourID) {
         adjacentTriangleIndexes[numOfAdjacentTriangles] = neighbourID;
         ++numOfAdjacentTriangles;
     }
 
     public Coordinate getCircumcenter() {
+        SetCircumRadius();
+        if (circumCenter == null) {
+            circumCenter = new Coordinate(circumCenterX, circumCenterY);
+        }
         return circumCenter;
     }
 
     public double getCircumRadius() {
-        return circumRadius;
+        SetCircumRadius();
+        return Math.sqrt(circumRadiusSquared);
+    }
+
+    /**
+     * @param point
+     * @return true if the point is inside or on the circumcircle
+     */
+    public boolean isInsideCircumcircle(Coordinate point) {
+        SetCircumRadius();
+        double dx = point.getX() - circumCenterX, dy = point.getY() - circumCenterY;
+        return dx * dx + dy * dy <= circumRadiusSquared;
     }
 
     public Line[] getEdges() {
@@ -58,34 +85,30 @@ public class Triangle {
     }
 
 
+    /**
+     * Computes the circumcircle if it is not computed yet
+     */
     public void SetCircumRadius() {
-        Line line1, line2;
-        line1 = new Line(vertices[0], vertices[1]);
-        line2 = new Line(vertices[1], vertices[2]);
-
-        double a1, b1, c1, a2, b2, c2;
-
-        a1 = line1.getB();
-        b1 = line1.getA() * -1;
-        c1 = line1.getCPerpendicular();
-        a2 = line2.getB();
-        b2 = line2.getA() * -1;
-        c2 = line2.getCPerpendicular();
-
-        double a2b1MINa1b2 = a2 * b1 - a1 * b2;
-
-        double sx, sy;
-
-        sx = (b2 * c1 - b1 * c2) / a2b1MINa1b2;
-        sy = (a1 * c2 - a2 * c1) / a2b1MINa1b2;
-
-        circumCenter = new Coordinate(sx, sy);
-        double dist0 = circumCenter.distance(vertices[0]),
-                dist1 = circumCenter.distance(vertices[1]),
-                dist2 = circumCenter.distance(vertices[2]);
+        if (isCircumcircleSet) {
+            return;
+        }
+        //circumcenter relative to vertex 0, from the perpendicular bisectors of edges 0-1 and 0-2
+        double x0 = vertices[0].getX(), y0 = vertices[0].getY();
+        double bx = vertices[1].getX() - x0, by = vertices[1].getY() - y0,
+                cx = vertices[2].getX() - x0, cy = vertices[2].getY() - y0;
+        double b = bx * bx + by * by, c = cx * cx + cy * cy;
+        double d = 0.5 / (bx * cy - by * cx);
+        circumCenterX = x0 + (cy * b - by * c) * d;
+        circumCenterY = y0 + (bx * c - cx * b) * d;
+        circumCenter = null;
 
         //Assign the distance to furthest vertex as radius
-        circumRadius = Math.max(dist2, Math.max(dist0, dist1));
+        circumRadiusSquared = 0;
+        for (Coordinate vertex : vertices) {
+            double dx = vertex.getX() - circumCenterX, dy = vertex.getY() - circumCenterY;
+            circumRadiusSquared = Math.max(circumRadiusSquared, dx * dx + dy * dy);
+        }
+        isCircumcircleSet = true;
     }
 
     @Override
@@ -24,7 +24,10 @@ import org.junit.Test;
 import org.locationtech.jts.geom.Coordinate;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.PrimitiveIterator;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -68,6 +71,22 @@ public class DelaunayTriangulationTest {
         clearDTCreator();
     }
 
+    @Test
+    public void TestCircumcircle() {
+        initSimpleTriangle();
+        initDelaunayTriangulation(simpleTriangle);
+        Triangle triangle = delaunayTriangulation.getTriangleSet().values().iterator().next();
+
+        assertEquals(1.375, triangle.getCircumcenter().getX(), 1e-12);
+        assertEquals(1.5, triangle.getCircumcenter().getY(), 1e-12);
+        assertEquals(0.625, triangle.getCircumRadius(), 1e-12);
+        assertTrue(triangle.isInsideCircumcircle(new Coordinate(1.5, 1.5)));
+        assertFalse(triangle.isInsideCircumcircle(new Coordinate(2.1, 1.5)));
+
+        clearSimpleTriangle();
+        clearDTCreator();
+    }
+
     private void initSimpleTwoTriangles() {
         simpleTwoTriangles = new HashSet<Coordinate>(4);
         simpleTwoTriangles.add(new Coordinate(1, 1));
@@ -219,5 +238,374 @@ public class DelaunayTriangulationTest {
         clearDTCreator();
     }
 
+    private void initCocircularGrid(int size) {
+        pointSet = new HashSet<Coordinate>();
+        //GPS like grid, every cell of it is a cocircular quad
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                pointSet.add(new Coordinate(144.9631 + i * 0.00001, -37.8136 + j * 0.00001));
+            }
+        }
+    }
+
+    private void clearCocircularGrid() {
+        pointSet = null;
+    }
+
+    @Test
+    public void TestCocircularGrid() {
+        initCocircularGrid(6);
+        initDelaunayTriangulation(pointSet);
+
+        //3n - 3 - h edges and 2n - 2 - h triangles for n points with h points on the convex hull
+        assertEquals(85, delaunayTriangulation.getDelaunayEdges().size());
+        assertEquals(50, delaunayTriangulation.getTriangleSet().size());
+        //no pair of triangles of a cell is flipped more than once
+        assertTrue(delaunayTriangulation.getNumOfFlips() <= 25);
+
+        clearCocircularGrid();
+        clearDTCreator();
+    }
+
+    private void initConvexCurve(int size) {
+        pointSet = new HashSet<Coordinate>();
+        //every point of this set is on the convex hull
+        for (int i = 0; i < size; i++) {
+            pointSet.add(new Coordinate(i, i * i / 10d));
+        }
+    }
+
+    private void clearConvexCurve() {
+        pointSet = null;
+    }
+
+    @Test
+    public void TestConvexCurve() {
+        initConvexCurve(200);
+        initDelaunayTriangulation(pointSet);
+
+        assertEquals(397, delaunayTriangulation.getDelaunayEdges().size());
+        assertEquals(198, delaunayTriangulation.getTriangleSet().size());
+
+        clearConvexCurve();
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestFlipCount() {
+        initSimpleTriangle();
+        initDelaunayTriangulation(simpleTriangle);
+        assertEquals(0, delaunayTriangulation.getNumOfFlips());
+        clearSimpleTriangle();
+
+        //initial sweep triangulation of this point set is not Delaunay
+        initPyramidAndTetrahedron();
+        initDelaunayTriangulation(pointSet);
+        assertTrue(delaunayTriangulation.getNumOfFlips() > 0);
+        assertEquals(13, delaunayTriangulation.getDelaunayEdges().size());
+
+        clearPyramidAndTetrahedron();
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestEdgeLookup() {
+        initPyramidAndTetrahedron();
+        initDelaunayTriangulation(pointSet);
+
+        assertEquals(-1, delaunayTriangulation.getVertexID(new Coordinate(10d, 10d)));
+        for (Line edge : delaunayTriangulation.getDelaunayEdges()) {
+            Coordinate[] endPoints = edge.getEndPoints();
+            assertTrue(delaunayTriangulation.getVertexID(endPoints[0]) > -1);
+            //same line should be returned irrespective of the order of end points
+            assertSame(edge, delaunayTriangulation.getFromLineSet(endPoints[0], endPoints[1]));
+            assertSame(edge, delaunayTriangulation.getFromLineSet(endPoints[1], endPoints[0]));
+            assertSame(edge, delaunayTriangulation.getEdgeSet().get(endPoints[0] + "," + endPoints[1]));
+        }
+        assertEquals(13, delaunayTriangulation.getEdgeSet().size());
+
+        clearPyramidAndTetrahedron();
+        clearDTCreator();
+    }
+
+    //edges of both triangulations should connect the same pairs of points
+    private void assertSameEdges(DelaunayTriangulation expected, DelaunayTriangulation actual) {
+        assertEquals(expected.getDelaunayEdges().size(), actual.getDelaunayEdges().size());
+        assertEquals(expected.getTriangleSet().size(), actual.getTriangleSet().size());
+        for (Line edge : actual.getDelaunayEdges()) {
+            Coordinate[] endPoints = edge.getEndPoints();
+            assertTrue(expected.getEdgeSet().containsKey(endPoints[0] + "," + endPoints[1]) ||
+                    expected.getEdgeSet().containsKey(endPoints[1] + "," + endPoints[0]));
+        }
+    }
+
+    @Test
+    public void TestInsert() {
+        initPyramidAndTetrahedron();
+        initDelaunayTriangulation(pointSet);
+        DelaunayTriangulation incrementalTriangulation = new DelaunayTriangulation(new HashSet<Coordinate>());
+        for (Coordinate point : pointSet) {
+            assertTrue(incrementalTriangulation.insert(point));
+        }
+
+        assertEquals(13, incrementalTriangulation.getDelaunayEdges().size());
+        assertSameEdges(delaunayTriangulation, incrementalTriangulation);
+        //points already in the triangulation are not added again
+        assertFalse(incrementalTriangulation.insert(new Coordinate(2.5d, 2.5d)));
+        assertEquals(7, incrementalTriangulation.getUniqueCoordinates().size());
+
+        clearPyramidAndTetrahedron();
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestInsertOnEdge() {
+        initSimpleTwoTriangles();
+        initDelaunayTriangulation(simpleTwoTriangles);
+        HashMap<String, Line> edgeSet = delaunayTriangulation.getEdgeSet();
+
+        //on the shared edge of the two triangles
+        assertTrue(delaunayTriangulation.insert(new Coordinate(1.5, 1.75)));
+        assertEquals(4, delaunayTriangulation.getTriangleSet().size());
+        assertEquals(8, delaunayTriangulation.getDelaunayEdges().size());
+        //on a convex hull edge
+        assertTrue(delaunayTriangulation.insert(new Coordinate(1, 1.5)));
+        assertEquals(5, delaunayTriangulation.getTriangleSet().size());
+        assertEquals(10, delaunayTriangulation.getDelaunayEdges().size());
+        //edge set taken before the insertions is kept up to date
+        assertEquals(10, edgeSet.size());
+        for (Triangle triangle : delaunayTriangulation.getTriangleSet().values()) {
+            for (Line edge : triangle.getEdges()) {
+                assertSame(edge, edgeSet.get(edge.getEndPoints()[0] + "," + edge.getEndPoints()[1]));
+            }
+        }
+
+        clearSimpleTwoTriangles();
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestInsertIntoCollinearPoints() {
+        pointSet = new HashSet<Coordinate>();
+        for (int i = 0; i < 5; i++) {
+            pointSet.add(new Coordinate(i, 2 * i));
+        }
+        initDelaunayTriangulation(pointSet);
+        assertEquals(0, delaunayTriangulation.getTriangleSet().size());
+
+        delaunayTriangulation.insert(new Coordinate(0, 5));
+        assertEquals(4, delaunayTriangulation.getTriangleSet().size());
+        assertEquals(9, delaunayTriangulation.getDelaunayEdges().size());
+
+        pointSet = null;
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestInsertAll() {
+        pointSet = new HashSet<Coordinate>();
+        ArrayList<Coordinate> newPoints = new ArrayList<Coordinate>();
+        Random random = new Random(2020);
+        while (pointSet.size() < 2000) {
+            pointSet.add(new Coordinate(144.9 + random.nextDouble(), -37.8 + random.nextDouble()));
+        }
+        //new points are spread over a larger area, so that some of them are outside the current convex hull
+        while (newPoints.size() < 2000) {
+            newPoints.add(new Coordinate(144.8 + random.nextDouble() * 1.2, -37.9 + random.nextDouble() * 1.2));
+        }
+        initDelaunayTriangulation(pointSet);
+        assertTrue(delaunayTriangulation.insertAll(newPoints));
+        assertFalse(delaunayTriangulation.insertAll(newPoints));
+
+        pointSet.addAll(newPoints);
+        assertSameEdges(new DelaunayTriangulation(pointSet), delaunayTriangulation);
+
+        pointSet = null;
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestRemove() {
+        initPyramidAndTetrahedron();
+        initDelaunayTriangulation(pointSet);
+
+        assertFalse(delaunayTriangulation.remove(new Coordinate(10d, 10d)));
+        //an interior point and a point on the convex hull
+        for (Coordinate point : new Coordinate[]{new Coordinate(2.5d, 2.5d), new Coordinate(1d, 0.5d)}) {
+            assertTrue(delaunayTriangulation.remove(point));
+            pointSet.remove(point);
+            assertSameEdges(new DelaunayTriangulation(pointSet), delaunayTriangulation);
+            assertEquals(-1, delaunayTriangulation.getVertexID(point));
+        }
+        //vertex IDs stay contiguous
+        ArrayList<Coordinate> uniqueCoordinates = delaunayTriangulation.getUniqueCoordinates();
+        assertEquals(5, uniqueCoordinates.size());
+        for (int i = 0; i < uniqueCoordinates.size(); i++) {
+            assertEquals(i, delaunayTriangulation.getVertexID(uniqueCoordinates.get(i)));
+        }
+
+        clearPyramidAndTetrahedron();
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestSlidingWindow() {
+        pointSet = new HashSet<Coordinate>();
+        ArrayList<Coordinate> window = new ArrayList<Coordinate>();
+        Random random = new Random(2020);
+        while (pointSet.size() < 2000) {
+            Coordinate point = new Coordinate(144.9 + random.nextDouble(), -37.8 + random.nextDouble());
+            if (pointSet.add(point)) {
+                window.add(point);
+            }
+        }
+        initDelaunayTriangulation(pointSet);
+
+        //evict the oldest half of the points while new points arrive
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(delaunayTriangulation.remove(window.get(i)));
+            pointSet.remove(window.get(i));
+            Coordinate point = new Coordinate(144.9 + random.nextDouble(), -37.8 + random.nextDouble());
+            delaunayTriangulation.insert(point);
+            pointSet.add(point);
+        }
+        assertSameEdges(new DelaunayTriangulation(pointSet), delaunayTriangulation);
+
+        //removing every point leaves an empty triangulation
+        for (Coordinate point : pointSet) {
+            assertTrue(delaunayTriangulation.remove(point));
+        }
+        assertEquals(0, delaunayTriangulation.getTriangleSet().size());
+        assertEquals(0, delaunayTriangulation.getDelaunayEdges().size());
+        assertEquals(0, delaunayTriangulation.getUniqueCoordinates().size());
+
+        pointSet = null;
+        clearDTCreator();
+    }
+
+    //total distance between consecutive vertices of the triangulation
+    private double getPathLength(DelaunayTriangulation triangulation) {
+        ArrayList<Coordinate> uniqueCoordinates = triangulation.getUniqueCoordinates();
+        double length = 0;
+        for (int i = 1; i < uniqueCoordinates.size(); i++) {
+            length += uniqueCoordinates.get(i - 1).distance(uniqueCoordinates.get(i));
+        }
+        return length;
+    }
+
+    @Test
+    public void TestSpatiallyOrdered() {
+        pointSet = new HashSet<Coordinate>();
+        Random random = new Random(2020);
+        while (pointSet.size() < 2000) {
+            pointSet.add(new Coordinate(144.9 + random.nextDouble(), -37.8 + random.nextDouble()));
+        }
+        initDelaunayTriangulation(pointSet);
+        DelaunayTriangulation orderedTriangulation = new DelaunayTriangulation(pointSet, true);
+
+        assertSameEdges(delaunayTriangulation, orderedTriangulation);
+        ArrayList<Coordinate> uniqueCoordinates = orderedTriangulation.getUniqueCoordinates();
+        for (int i = 0; i < uniqueCoordinates.size(); i++) {
+            assertEquals(i, orderedTriangulation.getVertexID(uniqueCoordinates.get(i)));
+        }
+        //consecutive vertices are close to each other
+        assertTrue(getPathLength(orderedTriangulation) * 10 < getPathLength(delaunayTriangulation));
+
+        pointSet = null;
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestHalfEdges() {
+        pointSet = new HashSet<Coordinate>();
+        Random random = new Random(2020);
+        while (pointSet.size() < 1000) {
+            pointSet.add(new Coordinate(144.9 + random.nextDouble(), -37.8 + random.nextDouble()));
+        }
+        initDelaunayTriangulation(pointSet);
+        //removed triangles leave unused half-edges behind
+        for (int i = 0; i < 100; i++) {
+            delaunayTriangulation.remove(delaunayTriangulation.getUniqueCoordinates().get(i));
+        }
+
+        int numOfEdges = 0;
+        PrimitiveIterator.OfInt edges = delaunayTriangulation.getEdgeIterator();
+        while (edges.hasNext()) {
+            int halfEdge = edges.nextInt();
+            int twin = delaunayTriangulation.getTwin(halfEdge);
+            if (twin != -1) {
+                assertEquals(halfEdge, delaunayTriangulation.getTwin(twin));
+                assertEquals(delaunayTriangulation.getOrigin(halfEdge), delaunayTriangulation.getDestination(twin));
+            }
+            //line of the edge connects the same vertices
+            Coordinate[] endPoints = delaunayTriangulation.getLine(halfEdge).getEndPoints();
+            assertEquals(delaunayTriangulation.getOrigin(halfEdge), delaunayTriangulation.getVertexID(endPoints[0]));
+            assertEquals(delaunayTriangulation.getDestination(halfEdge),
+                    delaunayTriangulation.getVertexID(endPoints[1]));
+            assertEquals(delaunayTriangulation.getLine(halfEdge).getLength(),
+                    delaunayTriangulation.getLength(halfEdge), 1e-12);
+            ++numOfEdges;
+        }
+        assertEquals(delaunayTriangulation.getDelaunayEdges().size(), numOfEdges);
+
+        int numOfTriangles = 0;
+        PrimitiveIterator.OfInt triangles = delaunayTriangulation.getTriangleIterator();
+        while (triangles.hasNext()) {
+            int triangleIndex = triangles.nextInt();
+            int[] vertexIDs = delaunayTriangulation.getTriangleSet().get(triangleIndex).getVertexIDs();
+            for (int j = 0; j < 3; j++) {
+                assertEquals(vertexIDs[j], delaunayTriangulation.getOrigin(3 * triangleIndex + j));
+            }
+            ++numOfTriangles;
+        }
+        assertEquals(delaunayTriangulation.getTriangleSet().size(), numOfTriangles);
+        assertEquals(delaunayTriangulation.getNumOfTriangles(), numOfTriangles);
+
+        pointSet = null;
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestSnapping() {
+        //GPS readings of four places, a few centimetres of jitter between the readings of the same place
+        ArrayList<Coordinate> points = new ArrayList<Coordinate>();
+        Random random = new Random(2020);
+        double[][] places = {{144.9600, -37.8100}, {144.9700, -37.8000}, {144.9650, -37.8200}, {144.9750, -37.8150}};
+        for (int i = 0; i < places.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                points.add(new Coordinate(places[i][0] + (random.nextDouble() - 0.5) * 1e-7,
+                        places[i][1] + (random.nextDouble() - 0.5) * 1e-7));
+            }
+        }
+        delaunayTriangulation = new DelaunayTriangulation(points, 1e-6);
+
+        assertEquals(4, delaunayTriangulation.getNumOfVertices());
+        assertEquals(5, delaunayTriangulation.getDelaunayEdges().size());
+        for (int i = 0; i < places.length; i++) {
+            int vertexID = delaunayTriangulation.getVertexID(new Coordinate(places[i][0], places[i][1]));
+            assertEquals(i + 1, delaunayTriangulation.getMultiplicity(vertexID));
+        }
+
+        //another reading of a place is counted, removing a reading only drops the vertex with its last reading
+        Coordinate place = new Coordinate(places[1][0] + 2e-8, places[1][1] - 2e-8);
+        assertFalse(delaunayTriangulation.insert(place));
+        assertEquals(3, delaunayTriangulation.getMultiplicity(delaunayTriangulation.getVertexID(place)));
+        for (int i = 0; i < 2; i++) {
+            assertTrue(delaunayTriangulation.remove(place));
+            assertEquals(4, delaunayTriangulation.getNumOfVertices());
+        }
+        assertTrue(delaunayTriangulation.remove(place));
+        assertEquals(3, delaunayTriangulation.getNumOfVertices());
+        assertEquals(-1, delaunayTriangulation.getVertexID(place));
+
+        //without tolerance only equal points are merged
+        points.add(new Coordinate(places[0][0], places[0][1]));
+        points.add(new Coordinate(places[0][0], places[0][1]));
+        delaunayTriangulation = new DelaunayTriangulation(points, 0);
+        assertEquals(points.size() - 1, delaunayTriangulation.getNumOfVertices());
+        assertEquals(2, delaunayTriangulation.getMultiplicity(
+                delaunayTriangulation.getVertexID(new Coordinate(places[0][0], places[0][1]))));
 
+        clearDTCreator();
+    }
 }
@@ -19,6 +19,7 @@ package au.edu.unimelb.cis.geo;
 import au.edu.unimelb.cis.geo.controller.DelaunayTriangulation;
 import au.edu.unimelb.cis.geo.controller.DiversionGraph;
 import au.edu.unimelb.cis.geo.controller.GabrielGraph;
+import au.edu.unimelb.cis.geo.controller.ProximityGraphResult;
 import au.edu.unimelb.cis.geo.controller.SteppingStoneGraph;
 import au.edu.unimelb.cis.geo.model.Line;
 import org.junit.Ignore;
@@ -27,8 +28,10 @@ import org.locationtech.jts.geom.Coordinate;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class DiversionGraphTest {
     private DelaunayTriangulation delaunayTriangulation;
@@ -261,4 +264,115 @@ public class DiversionGraphTest {
         clearSteppingStoneGraph();
         clearDTCreator();
     }
+
+    //edge is kept if no vertex C of its triangles has AB^d >= AC^d + BC^d
+    private HashSet<Line> getExpectedEdges(double d) {
+        HashSet<Line> expectedEdges = new HashSet<Line>();
+        for (Line edge : delaunayTriangulation.getDelaunayEdges()) {
+            boolean isSkipped = false;
+            for (int triangleID : edge.getAdjacentNeighbours()) {
+                if (triangleID == -1) {
+                    continue;
+                }
+                for (Coordinate c : delaunayTriangulation.getTriangleSet().get(triangleID).getVertices()) {
+                    Coordinate[] endpoints = edge.getEndPoints();
+                    if (c == endpoints[0] || c == endpoints[1]) {
+                        continue;
+                    }
+                    double AB = endpoints[0].distance(endpoints[1]),
+                            AC = endpoints[0].distance(c),
+                            BC = endpoints[1].distance(c),
+                            minLength = Math.min(AB, Math.min(AC, BC));
+                    isSkipped |= d < Double.POSITIVE_INFINITY ?
+                            Math.pow(AB / minLength, d) >= Math.pow(AC / minLength, d) + Math.pow(BC / minLength, d) :
+                            AB >= AC && AB >= BC;
+                }
+            }
+            if (!isSkipped) {
+                expectedEdges.add(edge);
+            }
+        }
+        return expectedEdges;
+    }
+
+    @Test
+    public void TestCriticalDs() {
+        //grid has right angled triangles, which are on the boundary at d = 2
+        pointSet = new HashSet<Coordinate>();
+        Random random = new Random(2020);
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 20; j++) {
+                pointSet.add(new Coordinate(i, j));
+                pointSet.add(new Coordinate(30 + i + random.nextDouble(), j + random.nextDouble()));
+            }
+        }
+        initDTCreator(pointSet);
+        initDiversionGraph();
+
+        double[] d_values = {1.5, 2, 3, 4, 8, 16, Double.POSITIVE_INFINITY};
+        for (double d : d_values) {
+            ArrayList<Line> diversionGraphEdges = diversionGraph.getDiversionGraph(d);
+            assertEquals(getExpectedEdges(d), new HashSet<Line>(diversionGraphEdges));
+            assertEquals(new HashSet<Line>(diversionGraphEdges).size(), diversionGraphEdges.size());
+        }
+
+        pointSet = null;
+        clearDiversionGraph();
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestGabrielGraphCandidates() {
+        pointSet = new HashSet<Coordinate>();
+        Random random = new Random(2020);
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 20; j++) {
+                pointSet.add(new Coordinate(i, j));
+                pointSet.add(new Coordinate(30 + i + random.nextDouble(), j + random.nextDouble()));
+            }
+        }
+        initDTCreator(pointSet);
+        initDiversionGraph();
+        initGabrielGraph();
+
+        //GG is the diversion graph at d = 2, so it contains the diversion graph for larger d
+        ProximityGraphResult candidates = gabrielGraph.getResult();
+        DiversionGraph candidateDiversionGraph = new DiversionGraph(delaunayTriangulation, candidates, 2);
+        double[] d_values = {2, 2.5, 3, 4, 8, 16, Double.POSITIVE_INFINITY};
+        for (double d : d_values) {
+            assertEquals(new HashSet<Line>(diversionGraph.getDiversionGraph(d)),
+                    new HashSet<Line>(candidateDiversionGraph.getDiversionGraph(d)));
+        }
+        //critical d values are only computed for the candidates
+        assertTrue(candidateDiversionGraph.getNumOfCriticalDs() <= candidates.cardinality());
+        assertTrue(candidateDiversionGraph.getNumOfCriticalDs() < diversionGraph.getNumOfCriticalDs());
+
+        pointSet = null;
+        clearGabrielGraph();
+        clearDiversionGraph();
+        clearDTCreator();
+    }
+
+    private void initRandomCandidates() {
+        pointSet = new HashSet<Coordinate>();
+        Random random = new Random(2020);
+        for (int i = 0; i < 100; i++) {
+            pointSet.add(new Coordinate(random.nextDouble(), random.nextDouble()));
+        }
+        initDTCreator(pointSet);
+        initGabrielGraph();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void TestBelowMinimumD_OfCandidates() {
+        initRandomCandidates();
+        //edges of the diversion graph at d = 1.5 are missing from GG
+        new DiversionGraph(delaunayTriangulation, gabrielGraph.getResult(), 2).getDiversionGraph(1.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void TestResultBelowMinimumD_OfCandidates() {
+        initRandomCandidates();
+        new DiversionGraph(delaunayTriangulation, gabrielGraph.getResult(), 2).getDiversionGraphResult(1.5);
+    }
 }
@@ -25,7 +25,10 @@ import org.locationtech.jts.geom.Coordinate;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import static au.edu.unimelb.cis.geo.controller.utils.util.getPointNotOnEdge;
 import static org.junit.Assert.assertEquals;
 
 public class GabrielGraphTest {
@@ -175,4 +178,51 @@ public class GabrielGraphTest {
         clearGabrielGraph();
         clearDTCreator();
     }
+
+    private void initRandomPoints(int size) {
+        pointSet = new HashSet<Coordinate>();
+        Random random = new Random(2020);
+        while (pointSet.size() < size) {
+            pointSet.add(new Coordinate(144.9 + random.nextDouble(), -37.8 + random.nextDouble()));
+        }
+    }
+
+    @Test
+    public void TestRandomPoints() {
+        //large enough to be split between several tasks
+        initRandomPoints(20000);
+        initDTCreator(pointSet);
+        //removals leave half-edges of removed triangles in the range
+        ArrayList<Coordinate> points = new ArrayList<Coordinate>(pointSet);
+        for (int i = 0; i < 1000; i++) {
+            delaunayTriangulation.remove(points.get(i));
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        gabrielGraph = new GabrielGraph(delaunayTriangulation, pool);
+
+        //no other vertex of the triangles on both sides is inside the diametric circle of an edge
+        HashSet<Line> expectedEdges = new HashSet<Line>();
+        for (Line edge : delaunayTriangulation.getDelaunayEdges()) {
+            Coordinate[] endPoints = edge.getEndPoints();
+            Coordinate center = edge.getCenterPoint();
+            boolean isGabrielEdge = true;
+            for (int triangleID : edge.getAdjacentNeighbours()) {
+                if (triangleID != -1 && center.distance(getPointNotOnEdge(edge,
+                        delaunayTriangulation.getTriangleSet().get(triangleID))) <= endPoints[0].distance(center)) {
+                    isGabrielEdge = false;
+                }
+            }
+            if (isGabrielEdge) {
+                expectedEdges.add(edge);
+            }
+        }
+        ArrayList<Line> gabrielEdges = gabrielGraph.getEdgeList();
+        assertEquals(expectedEdges.size(), gabrielEdges.size());
+        assertEquals(expectedEdges, new HashSet<Line>(gabrielEdges));
+        pool.shutdown();
+
+        pointSet = null;
+        clearGabrielGraph();
+        clearDTCreator();
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2020, Sameera Kannangara (dlskannangara@gmail.com) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.edu.unimelb.cis.geo;
+
+import au.edu.unimelb.cis.geo.controller.DelaunayTriangulation;
+import au.edu.unimelb.cis.geo.controller.GabrielGraph;
+import au.edu.unimelb.cis.geo.controller.ParallelDelaunayTriangulation;
+import au.edu.unimelb.cis.geo.model.Line;
+import au.edu.unimelb.cis.geo.model.Triangle;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ParallelDelaunayTriangulationTest {
+    private DelaunayTriangulation delaunayTriangulation;
+    private DelaunayTriangulation parallelDelaunayTriangulation;
+    private HashSet<Coordinate> pointSet;
+    private ForkJoinPool pool;
+
+    private void initDelaunayTriangulations(HashSet<Coordinate> pointSet) {
+        delaunayTriangulation = new DelaunayTriangulation(pointSet);
+        pool = new ForkJoinPool(4);
+        parallelDelaunayTriangulation = new ParallelDelaunayTriangulation(pointSet, pool);
+    }
+
+    private void clearDTCreators() {
+        delaunayTriangulation = null;
+        parallelDelaunayTriangulation = null;
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    //edges of both triangulations should connect the same pairs of points
+    private void assertSameEdges() {
+        assertEquals(delaunayTriangulation.getDelaunayEdges().size(),
+                parallelDelaunayTriangulation.getDelaunayEdges().size());
+        assertEquals(delaunayTriangulation.getTriangleSet().size(),
+                parallelDelaunayTriangulation.getTriangleSet().size());
+        for (Line edge : parallelDelaunayTriangulation.getDelaunayEdges()) {
+            Coordinate[] endPoints = edge.getEndPoints();
+            assertTrue(delaunayTriangulation.getEdgeSet().containsKey(endPoints[0] + "," + endPoints[1]) ||
+                    delaunayTriangulation.getEdgeSet().containsKey(endPoints[1] + "," + endPoints[0]));
+        }
+    }
+
+    private void initPyramidAndTetrahedron() {
+        pointSet = new HashSet<Coordinate>();
+
+        //Tetrahedron points
+        pointSet.add(new Coordinate(1d, 1.5d));
+        pointSet.add(new Coordinate(2d, 4d));
+        pointSet.add(new Coordinate(2.5d, 2.5d));
+        pointSet.add(new Coordinate(4.5d, 2d));
+
+        //Pyramid points
+        pointSet.add(new Coordinate(1d, 0.5d));
+        pointSet.add(new Coordinate(1.8d, 1d));
+        pointSet.add(new Coordinate(3d, 0.5d));
+    }
+
+    private void clearPointSet() {
+        pointSet = null;
+    }
+
+    @Test
+    public void TestPyramidAndTetrahedron() {
+        initPyramidAndTetrahedron();
+        initDelaunayTriangulations(pointSet);
+
+        assertEquals(13, parallelDelaunayTriangulation.getDelaunayEdges().size());
+        assertSameEdges();
+
+        //graph builders work on the parallel triangulation as well
+        assertEquals(new GabrielGraph(delaunayTriangulation).getEdgeList().size(),
+                new GabrielGraph(parallelDelaunayTriangulation).getEdgeList().size());
+
+        clearPointSet();
+        clearDTCreators();
+    }
+
+    private void initRandomPoints(int size) {
+        pointSet = new HashSet<Coordinate>();
+        Random random = new Random(2020);
+        while (pointSet.size() < size) {
+            pointSet.add(new Coordinate(144.9 + random.nextDouble(), -37.8 + random.nextDouble()));
+        }
+    }
+
+    @Test
+    public void TestRandomPoints() {
+        //large enough to be split between several tasks
+        initRandomPoints(20000);
+        initDelaunayTriangulations(pointSet);
+
+        assertSameEdges();
+        for (Triangle triangle : parallelDelaunayTriangulation.getTriangleSet().values()) {
+            for (Line edge : triangle.getEdges()) {
+                assertNotNull(edge);
+            }
+        }
+
+        clearPointSet();
+        clearDTCreators();
+    }
+
+    @Test
+    public void TestInsert() {
+        initRandomPoints(1000);
+        parallelDelaunayTriangulation = new ParallelDelaunayTriangulation(pointSet);
+        //points around the current convex hull, so that the hull of the parallel triangulation is extended
+        ArrayList<Coordinate> newPoints = new ArrayList<Coordinate>();
+        Random random = new Random(2021);
+        while (newPoints.size() < 1000) {
+            newPoints.add(new Coordinate(144.8 + random.nextDouble() * 1.2, -37.9 + random.nextDouble() * 1.2));
+        }
+        parallelDelaunayTriangulation.insertAll(newPoints);
+
+        pointSet.addAll(newPoints);
+        delaunayTriangulation = new DelaunayTriangulation(pointSet);
+        assertSameEdges();
+
+        clearPointSet();
+        clearDTCreators();
+    }
+
+    @Test
+    public void TestCollinearPoints() {
+        pointSet = new HashSet<Coordinate>();
+        for (int i = 0; i < 10; i++) {
+            pointSet.add(new Coordinate(i, 2 * i));
+        }
+        parallelDelaunayTriangulation = new ParallelDelaunayTriangulation(pointSet);
+
+        //collinear points do not form any triangle
+        assertEquals(0, parallelDelaunayTriangulation.getTriangleSet().size());
+
+        clearPointSet();
+        clearDTCreators();
+    }
+}
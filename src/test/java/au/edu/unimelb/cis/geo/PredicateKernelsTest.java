@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020, Sameera Kannangara (dlskannangara@gmail.com) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.edu.unimelb.cis.geo;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static au.edu.unimelb.cis.geo.controller.utils.util.isInsideDiversionNeighbourhood;
+import static au.edu.unimelb.cis.geo.controller.utils.util.isOutsideDiametricCircle;
+import static org.junit.Assert.assertEquals;
+
+public class PredicateKernelsTest {
+    private static final int NUM_OF_TRIANGLES = 1000000;
+    private static final double[] D_VALUES = {1, 1.5, 2, 3, 8, Double.POSITIVE_INFINITY};
+    //vertices A, B and C of each triangle, and the logarithmic lengths of its sides
+    private double[] coordinates;
+    private double[] logLengths;
+
+    private void initRandomTriangles(int size) {
+        Random random = new Random(2020);
+        coordinates = new double[6 * size];
+        logLengths = new double[3 * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < 6; j++) {
+                coordinates[6 * i + j] = random.nextDouble();
+            }
+            logLengths[3 * i] = Math.log(getLength(i, 0, 1));
+            logLengths[3 * i + 1] = Math.log(getLength(i, 0, 2));
+            logLengths[3 * i + 2] = Math.log(getLength(i, 1, 2));
+        }
+    }
+
+    private void clearRandomTriangles() {
+        coordinates = null;
+        logLengths = null;
+    }
+
+    private double getLength(int triangle, int vertex1, int vertex2) {
+        double dx = coordinates[6 * triangle + 2 * vertex1] - coordinates[6 * triangle + 2 * vertex2],
+                dy = coordinates[6 * triangle + 2 * vertex1 + 1] - coordinates[6 * triangle + 2 * vertex2 + 1];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    //tests on Math.pow that the kernels replace
+    private boolean isTriangleOutsideDiametricCircleOnPow(int triangle) {
+        double AB = getLength(triangle, 0, 1), AC = getLength(triangle, 0, 2), BC = getLength(triangle, 1, 2);
+        return Math.pow(AB, 2) < Math.pow(AC, 2) + Math.pow(BC, 2);
+    }
+
+    private boolean isTriangleInsideDiversionNeighbourhoodOnPow(int triangle, double d) {
+        double AB = getLength(triangle, 0, 1), AC = getLength(triangle, 0, 2), BC = getLength(triangle, 1, 2);
+        if (d == Double.POSITIVE_INFINITY) {
+            return AB >= AC && AB >= BC;
+        }
+        return Math.pow(AB, d) >= Math.pow(AC, d) + Math.pow(BC, d);
+    }
+
+    private boolean isTriangleOutsideDiametricCircle(int triangle) {
+        return isOutsideDiametricCircle(coordinates[6 * triangle], coordinates[6 * triangle + 1],
+                coordinates[6 * triangle + 2], coordinates[6 * triangle + 3],
+                coordinates[6 * triangle + 4], coordinates[6 * triangle + 5]);
+    }
+
+    private boolean isTriangleInsideDiversionNeighbourhood(int triangle, double d) {
+        return isInsideDiversionNeighbourhood(logLengths[3 * triangle], logLengths[3 * triangle + 1],
+                logLengths[3 * triangle + 2], d);
+    }
+
+    @Test
+    public void TestKernels() {
+        initRandomTriangles(100000);
+
+        for (int i = 0; i < 100000; i++) {
+            assertEquals(isTriangleOutsideDiametricCircleOnPow(i), isTriangleOutsideDiametricCircle(i));
+            for (double d : D_VALUES) {
+                assertEquals(isTriangleInsideDiversionNeighbourhoodOnPow(i, d),
+                        isTriangleInsideDiversionNeighbourhood(i, d));
+            }
+        }
+
+        //C on the diametric circle, a right angle at C
+        assertEquals(false, isOutsideDiametricCircle(0, 0, 4, 0, 2, 2));
+        //5^d >= 3^d + 4^d from d = 2 on
+        assertEquals(true, isInsideDiversionNeighbourhood(Math.log(5), Math.log(3), Math.log(4), 2.1));
+        assertEquals(false, isInsideDiversionNeighbourhood(Math.log(5), Math.log(3), Math.log(4), 1.9));
+        //AB is not the longest side
+        assertEquals(false, isInsideDiversionNeighbourhood(Math.log(4), Math.log(5), Math.log(3),
+                Double.POSITIVE_INFINITY));
+
+        clearRandomTriangles();
+    }
+
+    @Test
+    @Ignore //Micro-benchmark, prints nanoseconds per test of the kernels and of the tests on Math.pow
+    public void BenchmarkKernels() {
+        initRandomTriangles(NUM_OF_TRIANGLES);
+
+        //earlier rounds warm up the JIT
+        for (int round = 0; round < 5; round++) {
+            int count = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < NUM_OF_TRIANGLES; i++) {
+                count += isTriangleOutsideDiametricCircleOnPow(i) ? 1 : 0;
+            }
+            long powTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < NUM_OF_TRIANGLES; i++) {
+                count -= isTriangleOutsideDiametricCircle(i) ? 1 : 0;
+            }
+            long kernelTime = System.nanoTime() - start;
+            System.out.printf("Gabriel   pow %.1f ns, kernel %.1f ns (%d)%n",
+                    (double) powTime / NUM_OF_TRIANGLES, (double) kernelTime / NUM_OF_TRIANGLES, count);
+
+            for (double d : D_VALUES) {
+                count = 0;
+                start = System.nanoTime();
+                for (int i = 0; i < NUM_OF_TRIANGLES; i++) {
+                    count += isTriangleInsideDiversionNeighbourhoodOnPow(i, d) ? 1 : 0;
+                }
+                powTime = System.nanoTime() - start;
+                start = System.nanoTime();
+                for (int i = 0; i < NUM_OF_TRIANGLES; i++) {
+                    count -= isTriangleInsideDiversionNeighbourhood(i, d) ? 1 : 0;
+                }
+                kernelTime = System.nanoTime() - start;
+                System.out.printf("Diversion d = %s pow %.1f ns, kernel %.1f ns (%d)%n", d,
+                        (double) powTime / NUM_OF_TRIANGLES, (double) kernelTime / NUM_OF_TRIANGLES, count);
+            }
+        }
+
+        clearRandomTriangles();
+    }
+}
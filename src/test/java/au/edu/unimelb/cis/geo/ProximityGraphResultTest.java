@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020, Sameera Kannangara (dlskannangara@gmail.com) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.edu.unimelb.cis.geo;
+
+import au.edu.unimelb.cis.geo.controller.*;
+import au.edu.unimelb.cis.geo.model.Line;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProximityGraphResultTest {
+    private DelaunayTriangulation delaunayTriangulation;
+    private HashSet<Coordinate> pointSet;
+
+    private void initDTCreator(HashSet<Coordinate> pointSet) {
+        delaunayTriangulation = new DelaunayTriangulation(pointSet);
+    }
+
+    private void clearDTCreator() {
+        delaunayTriangulation = null;
+    }
+
+    private void initRandomPoints(int size) {
+        pointSet = new HashSet<Coordinate>();
+        Random random = new Random(2020);
+        while (pointSet.size() < size) {
+            pointSet.add(new Coordinate(144.9 + random.nextDouble(), -37.8 + random.nextDouble()));
+        }
+    }
+
+    private void clearRandomPoints() {
+        pointSet = null;
+    }
+
+    @Test
+    public void TestResults() {
+        initRandomPoints(2000);
+        initDTCreator(pointSet);
+
+        //each result has the edges of the list of its graph
+        GabrielGraph gabrielGraph = new GabrielGraph(delaunayTriangulation);
+        ProximityGraphResult gabrielGraphResult = gabrielGraph.getResult();
+        assertEquals(new HashSet<Line>(gabrielGraph.getEdgeList()),
+                new HashSet<Line>(gabrielGraphResult.getEdgeList()));
+
+        SteppingStoneGraph steppingStoneGraph = new SteppingStoneGraph(delaunayTriangulation);
+        ProximityGraphResult steppingStoneGraphResult = steppingStoneGraph.getSteppingStoneGraphResult(4);
+        assertEquals(new HashSet<Line>(steppingStoneGraph.getSteppingStoneGraphEdges(4)),
+                new HashSet<Line>(steppingStoneGraphResult.getEdgeList()));
+
+        DiversionGraph diversionGraph = new DiversionGraph(delaunayTriangulation);
+        assertEquals(new HashSet<Line>(diversionGraph.getDiversionGraph(2)),
+                new HashSet<Line>(diversionGraph.getDiversionGraphResult(2).getEdgeList()));
+
+        ShortestPathGraph shortestPathGraph = new ShortestPathGraph(delaunayTriangulation);
+        ProximityGraphResult shortestPathGraphResult = shortestPathGraph.getShortestPathGraphResult(2);
+        assertEquals(new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(2)),
+                new HashSet<Line>(shortestPathGraphResult.getEdgeList()));
+
+        //SPG(2) is a subgraph of GG
+        assertEquals(0, shortestPathGraphResult.andNot(gabrielGraphResult).cardinality());
+        assertEquals(shortestPathGraphResult.cardinality(),
+                shortestPathGraphResult.and(gabrielGraphResult).cardinality());
+        assertEquals(gabrielGraphResult.cardinality(),
+                shortestPathGraphResult.or(gabrielGraphResult).cardinality());
+
+        //GG edges not in SSG(4)
+        ProximityGraphResult difference = gabrielGraphResult.andNot(steppingStoneGraphResult);
+        assertEquals(gabrielGraphResult.cardinality() - gabrielGraphResult.and(steppingStoneGraphResult).cardinality(),
+                difference.cardinality());
+        for (Line edge : difference.getEdgeList()) {
+            assertTrue(gabrielGraphResult.contains(edge));
+            assertFalse(steppingStoneGraphResult.contains(edge));
+        }
+
+        clearRandomPoints();
+        clearDTCreator();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void TestDifferentTriangulations() {
+        initRandomPoints(100);
+        initDTCreator(pointSet);
+        ProximityGraphResult gabrielGraphResult = new GabrielGraph(delaunayTriangulation).getResult();
+
+        new GabrielGraph(new DelaunayTriangulation(pointSet)).getResult().and(gabrielGraphResult);
+    }
+}
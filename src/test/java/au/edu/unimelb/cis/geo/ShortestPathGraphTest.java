@@ -18,6 +18,7 @@ package au.edu.unimelb.cis.geo;
 
 import au.edu.unimelb.cis.geo.controller.DelaunayTriangulation;
 import au.edu.unimelb.cis.geo.controller.GabrielGraph;
+import au.edu.unimelb.cis.geo.controller.ProximityGraphResult;
 import au.edu.unimelb.cis.geo.controller.ShortestPathGraph;
 import au.edu.unimelb.cis.geo.controller.SteppingStoneGraph;
 import au.edu.unimelb.cis.geo.model.Line;
@@ -25,10 +26,15 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.locationtech.jts.geom.Coordinate;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class ShortestPathGraphTest {
@@ -283,4 +289,205 @@ public class ShortestPathGraphTest {
         clearShortestPathGraph();
         clearDTCreator();
     }
+
+    private void initRandomPoints(int size) {
+        pointSet = new HashSet<Coordinate>();
+        Random random = new Random(2020);
+        while (pointSet.size() < size) {
+            pointSet.add(new Coordinate(144.9 + random.nextDouble(), -37.8 + random.nextDouble()));
+        }
+    }
+
+    @Test
+    public void TestRandomPoints() {
+        initRandomPoints(2000);
+        initDTCreator(pointSet);
+        initShortestPathGraph();
+
+        //SPG(t) contains SPG(t') for t < t', searches of one query do not leave state for the next
+        double[] t_values = {1, 1.5, 2, 3, 8, Double.POSITIVE_INFINITY};
+        HashSet<Line> previousEdges = new HashSet<Line>(delaunayTriangulation.getDelaunayEdges());
+        for (double t : t_values) {
+            HashSet<Line> shortestPathGraphEdges = new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(t));
+            assertTrue(previousEdges.containsAll(shortestPathGraphEdges));
+            previousEdges = shortestPathGraphEdges;
+        }
+        assertEquals(new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(2)),
+                new HashSet<Line>(new ShortestPathGraph(delaunayTriangulation).getShortestPathGraphEdges(2)));
+        //second build with the same t reuses its edge weights
+        assertEquals(new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(2)),
+                new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(2)));
+
+        //SPG(infinity) is a spanning tree
+        assertEquals(delaunayTriangulation.getNumOfVertices() - 1,
+                shortestPathGraph.getShortestPathGraphEdges(Double.POSITIVE_INFINITY).size());
+
+        pointSet = null;
+        clearShortestPathGraph();
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestBatchedBuild() {
+        //several batches of edges
+        initRandomPoints(10000);
+        initDTCreator(pointSet);
+        initShortestPathGraph();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        double[] t_values = {1, 1.5, 2, 3, 8};
+        for (double t : t_values) {
+            assertEquals(new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(t)),
+                    new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(t, pool)));
+        }
+
+        //edges of equal length on a grid
+        pointSet = new HashSet<Coordinate>();
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 100; j++) {
+                pointSet.add(new Coordinate(144.9 + i * 0.001, -37.8 + j * 0.001));
+            }
+        }
+        initDTCreator(pointSet);
+        initShortestPathGraph();
+        for (double t : t_values) {
+            assertEquals(new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(t)),
+                    new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(t, pool)));
+        }
+        pool.shutdown();
+
+        pointSet = null;
+        clearShortestPathGraph();
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestCollectedAfterBatchedBuild() throws InterruptedException {
+        initRandomPoints(10000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        DelaunayTriangulation batchedDelaunayTriangulation = new DelaunayTriangulation(pointSet);
+        ShortestPathGraph batchedShortestPathGraph = new ShortestPathGraph(batchedDelaunayTriangulation);
+        batchedShortestPathGraph.getShortestPathGraphEdges(2, pool);
+
+        //the pool threads outlive the build, they should not keep the graph
+        WeakReference<ShortestPathGraph> graphReference = new WeakReference<>(batchedShortestPathGraph);
+        WeakReference<DelaunayTriangulation> triangulationReference =
+                new WeakReference<>(batchedDelaunayTriangulation);
+        batchedShortestPathGraph = null;
+        batchedDelaunayTriangulation = null;
+        for (int i = 0; i < 50 && (graphReference.get() != null || triangulationReference.get() != null); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(graphReference.get());
+        assertNull(triangulationReference.get());
+        pool.shutdown();
+
+        pointSet = null;
+    }
+
+    @Test
+    public void TestCandidates() {
+        initRandomPoints(5000);
+        initDTCreator(pointSet);
+        initShortestPathGraph();
+
+        //SPG(t) is contained in SPG(t') for t' < t, and in GG for t >= 2
+        ProximityGraphResult shortestPathGraphResult = shortestPathGraph.getShortestPathGraphResult(2);
+        assertEquals(new HashSet<Line>(new ShortestPathGraph(delaunayTriangulation).getShortestPathGraphEdges(4)),
+                new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(4, shortestPathGraphResult)));
+        ProximityGraphResult gabrielGraphResult = new GabrielGraph(delaunayTriangulation).getResult();
+        assertEquals(new HashSet<Line>(new ShortestPathGraph(delaunayTriangulation).getShortestPathGraphEdges(3)),
+                new HashSet<Line>(shortestPathGraph.getShortestPathGraphResult(3, gabrielGraphResult).getEdgeList()));
+
+        pointSet = null;
+        clearShortestPathGraph();
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestMinimumSpanningTree() {
+        initRandomPoints(500);
+        initDTCreator(pointSet);
+        initShortestPathGraph();
+
+        //length of the minimum spanning tree of the complete graph, from Prim's algorithm
+        ArrayList<Coordinate> points = new ArrayList<Coordinate>(pointSet);
+        double[] distances = new double[points.size()];
+        boolean[] isInTree = new boolean[points.size()];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        distances[0] = 0;
+        double expectedLength = 0;
+        for (int i = 0; i < points.size(); i++) {
+            int closest = -1;
+            for (int j = 0; j < points.size(); j++) {
+                if (!isInTree[j] && (closest == -1 || distances[j] < distances[closest])) {
+                    closest = j;
+                }
+            }
+            isInTree[closest] = true;
+            expectedLength += distances[closest];
+            for (int j = 0; j < points.size(); j++) {
+                distances[j] = Math.min(distances[j], points.get(closest).distance(points.get(j)));
+            }
+        }
+
+        ArrayList<Line> minimumSpanningTreeEdges = shortestPathGraph.getMinimumSpanningTreeEdges();
+        double length = 0;
+        for (Line edge : minimumSpanningTreeEdges) {
+            length += edge.getLength();
+        }
+        assertEquals(points.size() - 1, minimumSpanningTreeEdges.size());
+        assertEquals(expectedLength, length, 1e-9);
+        assertEquals(new HashSet<Line>(minimumSpanningTreeEdges),
+                new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(Double.POSITIVE_INFINITY)));
+
+        pointSet = null;
+        clearShortestPathGraph();
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestT_Spectrum() {
+        initRandomPoints(2000);
+        initDTCreator(pointSet);
+        initShortestPathGraph();
+        ShortestPathGraph shortestPathGraphFromT_Spectrum = new ShortestPathGraph(delaunayTriangulation, true);
+
+        double[] t_values = {1, 1.2, 1.5, 2, 2.5, 3, 4, 8, 16, Double.POSITIVE_INFINITY};
+        for (double t : t_values) {
+            assertEquals(new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(t)),
+                    new HashSet<Line>(shortestPathGraphFromT_Spectrum.getShortestPathGraphEdges(t)));
+        }
+
+        pointSet = null;
+        clearShortestPathGraph();
+        clearDTCreator();
+    }
+
+    @Test(timeout = 10000)
+    public void TestT_SpectrumNearlyEqualLengths() {
+        //the short sides are one ulp below the long side, their logarithms are equal
+        for (double length : new double[]{1000, 500000.5}) {
+            double shorterLength = Math.nextDown(length);
+            pointSet = new HashSet<Coordinate>();
+            pointSet.add(new Coordinate(0, 0));
+            pointSet.add(new Coordinate(length, 0));
+            pointSet.add(new Coordinate(shorterLength, shorterLength));
+            pointSet.add(new Coordinate(0, shorterLength));
+            initDTCreator(pointSet);
+            initShortestPathGraph();
+            ShortestPathGraph shortestPathGraphFromT_Spectrum = new ShortestPathGraph(delaunayTriangulation, true);
+
+            double[] t_values = {1, 2, 4, 16, Double.POSITIVE_INFINITY};
+            for (double t : t_values) {
+                assertEquals(new HashSet<Line>(shortestPathGraph.getShortestPathGraphEdges(t)),
+                        new HashSet<Line>(shortestPathGraphFromT_Spectrum.getShortestPathGraphEdges(t)));
+            }
+        }
+
+        pointSet = null;
+        clearShortestPathGraph();
+        clearDTCreator();
+    }
 }
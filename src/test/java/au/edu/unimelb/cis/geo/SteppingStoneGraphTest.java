@@ -26,7 +26,10 @@ import org.locationtech.jts.geom.Coordinate;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import static au.edu.unimelb.cis.geo.controller.utils.util.*;
 import static org.junit.Assert.assertEquals;
 
 public class SteppingStoneGraphTest {
@@ -256,4 +259,85 @@ public class SteppingStoneGraphTest {
         clearSteppingStoneGraph();
         clearDTCreator();
     }
+
+    private void initRandomPoints(int size) {
+        pointSet = new HashSet<Coordinate>();
+        Random random = new Random(2020);
+        while (pointSet.size() < size) {
+            pointSet.add(new Coordinate(144.9 + random.nextDouble(), -37.8 + random.nextDouble()));
+        }
+    }
+
+    @Test
+    public void TestParallelD_Spectrum() {
+        //enough edges to be split between several tasks
+        initRandomPoints(5000);
+        initDTCreator(pointSet);
+        ArrayList<Line> DelaunayEdges = delaunayTriangulation.getDelaunayEdges();
+
+        ForkJoinPool sequentialPool = new ForkJoinPool(1), pool = new ForkJoinPool(4);
+        new SteppingStoneGraph(delaunayTriangulation, sequentialPool);
+        double[] d_values = new double[DelaunayEdges.size()];
+        for (int i = 0; i < d_values.length; i++) {
+            d_values[i] = DelaunayEdges.get(i).getD_value();
+        }
+
+        //each edge has its own walk, so running walks at the same time gives the same d values
+        steppingStoneGraph = new SteppingStoneGraph(delaunayTriangulation, pool);
+        for (int i = 0; i < d_values.length; i++) {
+            assertEquals(d_values[i], DelaunayEdges.get(i).getD_value(), 0);
+        }
+        sequentialPool.shutdown();
+        pool.shutdown();
+
+        pointSet = null;
+        clearSteppingStoneGraph();
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestD_Queries() {
+        initRandomPoints(2000);
+        initDTCreator(pointSet);
+        initSteppingStoneGraph();
+
+        //same edges as checking the d value of every Delaunay edge
+        double[] d_values = {1.5, 2, 3, 4, 8, 16, Double.POSITIVE_INFINITY};
+        for (double d : d_values) {
+            HashSet<Line> expectedEdges = new HashSet<Line>();
+            for (Line edge : delaunayTriangulation.getDelaunayEdges()) {
+                if (d < Double.POSITIVE_INFINITY ? edge.getD_value() > d : edge.getD_value() == d) {
+                    expectedEdges.add(edge);
+                }
+            }
+            ArrayList<Line> steppingStoneGraphEdges = steppingStoneGraph.getSteppingStoneGraphEdges(d);
+            assertEquals(expectedEdges, new HashSet<Line>(steppingStoneGraphEdges));
+            assertEquals(expectedEdges.size(), steppingStoneGraphEdges.size());
+            assertEquals(expectedEdges.size(), steppingStoneGraph.getNumOfSteppingStoneGraphEdges(d));
+        }
+
+        pointSet = null;
+        clearSteppingStoneGraph();
+        clearDTCreator();
+    }
+
+    @Test
+    public void TestSolveForD() {
+        assertEquals(1, solveForD(2, 1, 1), 1e-12);
+        assertEquals(2, solveForD(5, 3, 4), 1e-12);
+        assertEquals(2, solveForD(Math.sqrt(2), 1, 1), 1e-12);
+        assertEquals(Double.POSITIVE_INFINITY, solveForD(1, 1, 0.5), 0);
+
+        //nearly equilateral triangle, c^d overflows long before the root
+        double d = solveForD(1 + 1e-9, 1, 1);
+        assertEquals(Math.log(2) / Math.log1p(1e-9), d, 1e-6 * d);
+
+        //batch gives the same d values
+        double[] c = {2, 5, 3}, a = {1, 3, 2}, b = {1, 4, 2.5}, d_values = new double[3];
+        solveForD(c, a, b, d_values, D_TOLERANCE, MAX_D_ITERATIONS);
+        for (int i = 0; i < d_values.length; i++) {
+            assertEquals(solveForD(c[i], a[i], b[i]), d_values[i], 0);
+            assertEquals(1, Math.pow(a[i] / c[i], d_values[i]) + Math.pow(b[i] / c[i], d_values[i]), 1e-12);
+        }
+    }
 }